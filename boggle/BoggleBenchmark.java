@@ -0,0 +1,256 @@
+/* *****************************************************************************
+ *  Name: BoggleBenchmark.java
+ *  Date: 10/18/2026
+ *  Description: A repeatable benchmark suite for the Boggle solver, run
+ *               over the boards and dictionaries in this directory.
+ *
+ *  Every benchmark is warmed up for one iteration and then measured for
+ *  several iterations of a fixed time. Each line reports the mean time per
+ *  operation with its standard deviation, the throughput, and the bytes the
+ *  benchmark thread allocated per operation, so that a regression in the hot
+ *  path shows up as either slower or hungrier.
+ *
+ *      compile   building the dictionary from each bundled word list,
+ *                from Strings and straight from the file
+ *      board     solving each bundled board with the yawl dictionary
+ *      random    solving pre-rolled random 4-by-4, 5-by-5 and 50-by-50 boards,
+ *                with the dictionary on the heap and off it, and scoring
+ *                packed 4-by-4 boards
+ *      generate  rolling packed boards with BoggleGenerator
+ *      cached    solving the random 4-by-4 boards again through the cache,
+ *                each in a random rotation or reflection
+ *      score     scoreOf over the common words, one by one and in bulk
+ *      traversal solving random boards from 3-by-3 to 60-by-60 and 1-by-200
+ *                with five dictionaries, from the two-letter words to
+ *                sowpods, dictionary-driven, board-driven and with the
+ *                automatic choice
+ *
+ *  % java BoggleBenchmark                  runs all benchmarks
+ *  % java BoggleBenchmark -time 200 board  runs the board benchmarks with
+ *                                          200 ms iterations
+ *
+ *  Allocation is measured with the per-thread counters of the HotSpot
+ *  ThreadMXBean; on a JVM without them the column reads n/a.
+ *****************************************************************************/
+
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
+
+public class BoggleBenchmark {
+
+    private static final int ITERATIONS = 5;
+    private static final String[] DICTIONARIES = {
+        "dictionary-2letters.txt", "dictionary-16q.txt", "dictionary-nursery.txt",
+        "dictionary-algs4.txt", "dictionary-common.txt", "dictionary-shakespeare.txt",
+        "dictionary-enable2k.txt", "dictionary-twl06.txt", "dictionary-yawl.txt",
+        "dictionary-sowpods.txt"
+    };
+
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    // results are folded in here so that no benchmark is optimized away
+    private static volatile int blackhole;
+
+    private final long iterationNanos;
+    private final String filter;
+
+    private BoggleBenchmark(long iterationMillis, String filter) {
+        this.iterationNanos = iterationMillis * 1000000L;
+        this.filter = filter;
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+        if (!hotspot.isThreadAllocatedMemorySupported()) return null;
+        hotspot.setThreadAllocatedMemoryEnabled(true);
+        return hotspot;
+    }
+
+    private static long allocated() {
+        return THREADS == null ? 0 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Measures the operation and prints one line of results. The operation
+     * gets the number of the call and returns a value for the blackhole.
+     */
+    private void measure(String name, IntUnaryOperator operation) {
+        if (filter != null && !name.contains(filter)) return;
+        double[] nanos = new double[ITERATIONS];
+        long bytes = 0;
+        long operations = 0;
+        int call = 0;
+        for (int iteration = -1; iteration < ITERATIONS; iteration++) {
+            int sum = 0;
+            long count = 0;
+            long allocatedBefore = allocated();
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                sum += operation.applyAsInt(call++);
+                count++;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < iterationNanos);
+            long allocatedAfter = allocated();
+            blackhole += sum;
+            if (iteration < 0) continue;    // warm-up
+            nanos[iteration] = (double) elapsed / count;
+            bytes += allocatedAfter - allocatedBefore;
+            operations += count;
+        }
+        double mean = Arrays.stream(nanos).average().orElse(0);
+        double variance = Arrays.stream(nanos).map(x -> (x - mean) * (x - mean)).sum() / (ITERATIONS - 1);
+        String perOperation = THREADS == null ? "n/a" : String.format("%.0f", (double) bytes / operations);
+        StdOut.printf("%-60s %14.2f %10.2f %14.1f %14s%n", name, mean / 1000, Math.sqrt(variance) / 1000,
+                      1e9 / mean, perOperation);
+    }
+
+    private void run() {
+        StdOut.printf("%-60s %14s %10s %14s %14s%n", "benchmark", "us/op", "+-", "ops/s", "B/op");
+
+        // dictionary construction
+        for (String name : DICTIONARIES) {
+            String[] words = new In(name).readAllStrings();
+            measure("compile " + name, call -> BoggleDictionary.compile(words).size());
+            measure("compile read " + name, call -> BoggleDictionary.read(name).size());
+        }
+
+        BoggleDictionary yawl = BoggleDictionary.read("dictionary-yawl.txt");
+        BoggleSolver solver = new BoggleSolver(yawl);
+
+        // single-board latency over the bundled boards
+        File[] files = new File(".").listFiles((dir, name) -> name.startsWith("board") && name.endsWith(".txt"));
+        Arrays.sort(files);
+        for (File file : files) {
+            BoggleBoard board = new BoggleBoard(file.getName());
+            measure("board " + file.getName(), call -> count(solver.getAllValidWords(board)));
+        }
+
+        // random-board throughput, with the boards rolled up front
+        random(solver, "random 4x4", new BoggleBoard[1024], () -> new BoggleBoard());
+        random(solver, "random 5x5", new BoggleBoard[1024], () -> new BoggleBoard(5, 5));
+        random(solver, "random 50x50", new BoggleBoard[16], () -> new BoggleBoard(50, 50));
+        BoggleSolver offHeap = new BoggleSolver(yawl.offHeap());
+        random(offHeap, "random 4x4 off-heap", new BoggleBoard[1024], () -> new BoggleBoard());
+        BoggleGenerator dice = new BoggleGenerator(BoggleGenerator.Letters.BOGGLE_1992, 4, 4, 2026);
+        long[][] packed = new long[1024][];
+        for (int i = 0; i < packed.length; i++) {
+            packed[i] = dice.next();
+        }
+        measure("random packed 4x4 totalScore", call -> solver.totalScore(4, 4, packed[call % packed.length]));
+
+        // the same boards from the cache, in other orientations
+        if (filter == null || "cached random 4x4".contains(filter)) {
+            BoggleSolver cached = new BoggleSolver(yawl);
+            cached.setCacheBudget(64L << 20);
+            BoggleBoard[] boards = new BoggleBoard[1024];
+            for (int i = 0; i < boards.length; i++) {
+                boards[i] = BoggleGenerator.toBoard(4, 4, dice.next());
+                cached.getAllValidWords(boards[i]);
+                boards[i] = transpose(i % 2 == 0 ? boards[i] : flip(boards[i]));
+            }
+            measure("cached random 4x4", call -> count(cached.getAllValidWords(boards[call % boards.length])));
+        }
+
+        // board generation
+        for (BoggleGenerator.Letters letters : BoggleGenerator.Letters.values()) {
+            int size = letters == BoggleGenerator.Letters.BOGGLE_1992
+                || letters == BoggleGenerator.Letters.BOGGLE_1983 ? 4 : 5;
+            BoggleGenerator generator = new BoggleGenerator(letters, size, size, 2026);
+            long[] board = new long[BoggleGenerator.packedLength(size, size)];
+            measure("generate " + letters + " " + size + "x" + size, call -> {
+                generator.next(board);
+                return (int) board[0];
+            });
+        }
+
+        // traversal strategies by dictionary and board shape
+        int[][] shapes = { { 3, 3 }, { 4, 4 }, { 5, 5 }, { 20, 20 }, { 60, 60 }, { 1, 200 } };
+        String[] names = { "dictionary-algs4.txt", "dictionary-yawl.txt", "dictionary-sowpods.txt",
+                           "dictionary-2letters.txt", "dictionary-16q.txt" };
+        for (String name : names) {
+            if (filter != null && !filter.startsWith("traversal") && !name.contains(filter)) continue;
+            BoggleDictionary dictionary = name.equals("dictionary-yawl.txt") ? yawl : BoggleDictionary.read(name);
+            BoggleSolver traversing = new BoggleSolver(dictionary);
+            for (int[] shape : shapes) {
+                BoggleBoard[] boards = new BoggleBoard[Math.max(16, 4096 / (shape[0] * shape[1]))];
+                for (int i = 0; i < boards.length; i++) {
+                    boards[i] = new BoggleBoard(shape[0], shape[1]);
+                }
+                for (BoggleSolver.Traversal traversal : BoggleSolver.Traversal.values()) {
+                    traversing.setTraversal(traversal);
+                    measure("traversal " + traversal + " " + name + " " + shape[0] + "x" + shape[1],
+                            call -> traversing.totalScore(boards[call % boards.length]));
+                }
+            }
+        }
+
+        // scoring
+        String[] common = new In("dictionary-common.txt").readAllStrings();
+        measure("score scoreOf(String) common words", call -> solver.scoreOf(common[call % common.length]));
+        measure("score scoreOf(String[]) common words", call -> solver.scoreOf(common));
+    }
+
+    private void random(BoggleSolver solver, String name, BoggleBoard[] boards,
+                        Supplier<BoggleBoard> roll) {
+        if (filter != null && !name.contains(filter)) return;
+        for (int i = 0; i < boards.length; i++) {
+            boards[i] = roll.get();
+        }
+        measure(name, call -> count(solver.getAllValidWords(boards[call % boards.length])));
+    }
+
+    private static BoggleBoard transpose(BoggleBoard board) {
+        char[][] a = new char[board.cols()][board.rows()];
+        for (int i = 0; i < board.rows(); i++) {
+            for (int j = 0; j < board.cols(); j++) {
+                a[j][i] = board.getLetter(i, j);
+            }
+        }
+        return new BoggleBoard(a);
+    }
+
+    private static BoggleBoard flip(BoggleBoard board) {
+        char[][] a = new char[board.rows()][board.cols()];
+        for (int i = 0; i < board.rows(); i++) {
+            for (int j = 0; j < board.cols(); j++) {
+                a[board.rows() - 1 - i][j] = board.getLetter(i, j);
+            }
+        }
+        return new BoggleBoard(a);
+    }
+
+    private static int count(Iterable<String> words) {
+        int count = 0;
+        for (String word : words) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Runs the benchmarks whose names contain the optional filter argument,
+     * from the directory with the boards and dictionaries. The option -time
+     * sets the length of an iteration in milliseconds (1000 by default).
+     */
+    public static void main(String[] args) {
+        long millis = 1000;
+        int i = 0;
+        if (args.length >= 2 && args[0].equals("-time")) {
+            millis = Long.parseLong(args[1]);
+            i = 2;
+        }
+        String filter = i < args.length ? args[i] : null;
+        StdOut.printf("%d x %d ms iterations after one warm-up, %s%n", ITERATIONS, millis,
+                      System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+        new BoggleBenchmark(millis, filter).run();
+    }
+}
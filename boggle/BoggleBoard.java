@@ -13,7 +13,7 @@ import edu.princeton.cs.algs4.StdRandom;
 
 public class BoggleBoard {
     // the 16 Boggle dice (1992 version)
-    private static final String[] BOGGLE_1992 = {
+    static final String[] BOGGLE_1992 = {
         "LRYTTE", "VTHRWE", "EGHWNE", "SEOTIS",
         "ANAEEG", "IDSYTT", "OATTOW", "MTOICU",
         "AFPKFS", "XLDERI", "HCPOAS", "ENSIEU",
@@ -21,7 +21,7 @@ public class BoggleBoard {
     };
 
     // the 16 Boggle dice (1983 version)
-    private static final String[] BOGGLE_1983 = {
+    static final String[] BOGGLE_1983 = {
         "AACIOT", "ABILTY", "ABJMOQ", "ACDEMP",
         "ACELRS", "ADENVZ", "AHMORS", "BIFORX",
         "DENOSW", "DKNOTU", "EEFHIY", "EGINTV",
@@ -29,7 +29,7 @@ public class BoggleBoard {
     };
 
     // the 25 Boggle Master / Boggle Deluxe dice
-    private static final String[] BOGGLE_MASTER = {
+    static final String[] BOGGLE_MASTER = {
         "AAAFRS", "AAEEEE", "AAFIRS", "ADENNN", "AEEEEM",
         "AEEGMU", "AEGMNN", "AFIRSY", "BJKQXZ", "CCNSTW",
         "CEIILT", "CEILPT", "CEIPST", "DDLNOR", "DHHLOR",
@@ -38,7 +38,7 @@ public class BoggleBoard {
     };
 
     // the 25 Big Boggle dice
-    private static final String[] BOGGLE_BIG = {
+    static final String[] BOGGLE_BIG = {
         "AAAFRS", "AAEEEE", "AAFIRS", "ADENNN", "AEEEEM",
         "AEEGMU", "AEGMNN", "AFIRSY", "BJKQXZ", "CCENST",
         "CEIILT", "CEILPT", "CEIPST", "DDHNOT", "DHHLOR",
@@ -48,8 +48,8 @@ public class BoggleBoard {
 
 
     // letters and frequencies of letters in the English alphabet
-    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
-    private static final double[] FREQUENCIES = {
+    static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    static final double[] FREQUENCIES = {
         0.08167, 0.01492, 0.02782, 0.04253, 0.12703, 0.02228,
         0.02015, 0.06094, 0.06966, 0.00153, 0.00772, 0.04025,
         0.02406, 0.06749, 0.07507, 0.01929, 0.00095, 0.05987,
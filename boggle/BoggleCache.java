@@ -0,0 +1,245 @@
+/* *****************************************************************************
+ *  Name: BoggleCache.java
+ *  Date: 10/18/2026
+ *  Description: A least-recently-used cache of solved boards for one
+ *               BoggleSolver, bounded by an estimate of the memory it holds.
+ *
+ *  Rotating or reflecting a board maps paths to paths, so all eight
+ *  variants of a board (four of them transposed, with rows and columns
+ *  swapped) have the same valid words. Boards are therefore keyed by a
+ *  canonical form: the smallest of the eight variants, each written as its
+ *  dimensions, two chars each, followed by its letters in row-major order. A
+ *  board and any of its variants share one entry.
+ *
+ *  An entry holds the valid words, their ids and their total score. Its cost
+ *  is estimated from the length of the key and of the words, and the
+ *  least recently used entries are evicted while the total is over budget;
+ *  an entry bigger than the whole budget is not kept at all.
+ *
+ *  The cache is safe for use by any number of threads. Lookups and updates
+ *  take one lock, which is held only for the map operation itself.
+ *****************************************************************************/
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public class BoggleCache {
+
+    // estimated bytes of an entry beyond its key chars, ids and words: the
+    // key String and its array, the array headers, the Entry and the map node
+    private static final long ENTRY_OVERHEAD = 152;
+
+    // estimated bytes of a word beyond its letters: the reference, the
+    // String and its array header
+    private static final long WORD_OVERHEAD = 44;
+
+    private final long budget;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private long bytes;
+    private long evictions;
+
+    /**
+     * The solved form of a board: its valid words and their ids, in the same
+     * order and not to be modified, and their total score.
+     */
+    static final class Entry {
+        final String[] words;
+        final int[] ids;
+        final int score;
+
+        Entry(String[] words, int[] ids, int score) {
+            this.words = words;
+            this.ids = ids;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Initializes an empty cache that holds about the given number of bytes.
+     *
+     * @param budget the memory budget in bytes
+     */
+    BoggleCache(long budget) {
+        if (budget <= 0) throw new IllegalArgumentException("budget must be positive");
+        this.budget = budget;
+    }
+
+    /**
+     * Returns the canonical key of the given board, which is the same for all
+     * its rotations and reflections.
+     *
+     * @param board a Boggle board
+     * @return the key
+     */
+    static String canonical(BoggleBoard board) {
+        int rows = board.rows();
+        int cols = board.cols();
+        char[] letters = new char[rows * cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                letters[i * cols + j] = board.getLetter(i, j);
+            }
+        }
+        char[] best = null;
+        char[] variant = new char[4 + letters.length];
+        for (int symmetry = 0; symmetry < 8; symmetry++) {
+            boolean flipRows = (symmetry & 1) != 0;
+            boolean flipCols = (symmetry & 2) != 0;
+            boolean transpose = (symmetry & 4) != 0;
+            int m = transpose ? cols : rows;
+            int n = transpose ? rows : cols;
+            variant[0] = (char) (m >>> 16);
+            variant[1] = (char) m;
+            variant[2] = (char) (n >>> 16);
+            variant[3] = (char) n;
+            int k = 4;
+            for (int i = 0; i < m; i++) {
+                for (int j = 0; j < n; j++) {
+                    int row = transpose ? j : i;
+                    int col = transpose ? i : j;
+                    if (flipRows) row = rows - 1 - row;
+                    if (flipCols) col = cols - 1 - col;
+                    variant[k++] = letters[row * cols + col];
+                }
+            }
+            if (best == null) {
+                best = variant.clone();
+            }
+            else if (compare(variant, best) < 0) {
+                System.arraycopy(variant, 0, best, 0, best.length);
+            }
+        }
+        return new String(best);
+    }
+
+    private static int compare(char[] a, char[] b) {
+        for (int k = 0; k < a.length; k++) {
+            if (a[k] != b[k]) return a[k] - b[k];
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the entry of the given key, or null if it is not cached, and
+     * counts a hit or a miss.
+     */
+    Entry get(String key) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry == null) misses.increment();
+        else hits.increment();
+        return entry;
+    }
+
+    /**
+     * Caches the entry under the given key, evicting the least recently used
+     * entries while the cache is over budget.
+     */
+    synchronized void put(String key, Entry entry) {
+        long cost = cost(key, entry);
+        if (cost > budget) return;
+        Entry old = entries.put(key, entry);
+        if (old != null) bytes -= cost(key, old);
+        bytes += cost;
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (bytes > budget) {
+            Map.Entry<String, Entry> e = eldest.next();
+            bytes -= cost(e.getKey(), e.getValue());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private static long cost(String key, Entry entry) {
+        long cost = ENTRY_OVERHEAD + 2L * key.length() + 4L * entry.ids.length;
+        for (String word : entry.words) {
+            cost += WORD_OVERHEAD + word.length();
+        }
+        return cost;
+    }
+
+    /**
+     * Removes all entries. The hit, miss and eviction counts are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Returns the memory budget of the cache.
+     *
+     * @return the budget in bytes
+     */
+    public long budget() {
+        return budget;
+    }
+
+    /**
+     * Returns the estimated memory held by the cached entries.
+     *
+     * @return the estimated bytes in use
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the number of cached boards.
+     *
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of lookups that found their board.
+     *
+     * @return the number of hits
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that had to solve their board.
+     *
+     * @return the number of misses
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the fraction of lookups that found their board.
+     *
+     * @return the hit rate, or 0 before the first lookup
+     */
+    public double hitRate() {
+        long hits = hits();
+        long lookups = hits + misses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Returns the number of entries evicted to stay within the budget.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d boards, %d of %d bytes, %d hits, %d misses (%.1f%%), %d evictions", size(), bytes(),
+                             budget, hits(), misses(), 100 * hitRate(), evictions());
+    }
+}
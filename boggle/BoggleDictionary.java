@@ -0,0 +1,1186 @@
+/* *****************************************************************************
+ *  Name: BoggleDictionary.java
+ *  Date: 10/18/2026
+ *  Description: A Boggle directory compiled into a flat, array-based trie
+ *               or a minimal acyclic automaton (DAWG).
+ *
+ *  The alphabet has 27 symbols: 'A' through 'Z' are 0 through 25, and the
+ *  two-letter sequence "QU" is symbol 26. A 'Q' that is not followed by a 'U'
+ *  keeps symbol 16, so such words stay in the directory but can never be
+ *  formed on a board (a 'Q' tile always reads "QU").
+ *
+ *  Every trie node is one record of three ints in a single int buffer:
+ *
+ *      nodes[3 * r]     index of the first record of the node's children
+ *      nodes[3 * r + 1] bits 0-26:  the set of child symbols,
+ *                       bits 27-30: the most letters any word below the
+ *                                   node adds, capped at 15,
+ *                       bit 31:     set if the node ends a word
+ *      nodes[3 * r + 2] the number of words below the node's earlier
+ *                       siblings
+ *
+ *  The children of a node are stored contiguously, ordered by symbol, so the
+ *  child for symbol s is found with one bit count over the child set. Record 0
+ *  is the root.
+ *
+ *  Adding up the third field along the path to a word, plus one for every
+ *  word on the way, gives the rank of the word in symbol order. That rank is
+ *  a dense word id from 0 to size() - 1.
+ *
+ *  minimize() turns the trie into a DAWG by sharing the children of all nodes
+ *  that end the same set of suffixes, such as the "-ING", "-ED" and "-ATIONS"
+ *  tails of English words. The layout stays the same: only the first-child
+ *  index of many records now points at the same block. So the same search
+ *  walks either form, and since the rank fields are a property of the
+ *  shared block, word ids stay correct.
+ *
+ *  read() builds a dictionary straight from a word list file: the file is
+ *  mapped into memory and its bytes are fed to the trie builder word by word,
+ *  with no String for any word. With several shards, each shard of the file
+ *  is built into a trie of its own in parallel and the tries are merged.
+ *
+ *  A compiled dictionary can be saved as a binary snapshot and later mapped
+ *  back into memory, which skips parsing the word list and building the trie:
+ *
+ *  % java BoggleDictionary dictionary-yawl.txt dictionary-yawl.dict
+ *
+ *  A dictionary can also carry four ints of prefilter data per record, which
+ *  describe every word below the record that is longer than the path to it:
+ *
+ *      filters[4 * r]     the symbols that all those words still need
+ *      filters[4 * r + 1] the symbols that they all still need twice
+ *      filters[4 * r + 2] two symbol pairs (bigrams) that they all still
+ *      filters[4 * r + 3] need, the rarest ones in English, or -1
+ *
+ *  A search can skip the record's subtree when the unused tiles of the board
+ *  cannot supply those symbols, or when the board has no adjacent tiles that
+ *  spell one of those bigrams. A bigram is stored as its index
+ *  first * ALPHABET_SIZE + second, so a board's bigrams fit a bitset of
+ *  twelve longs.
+ *
+ *  withSources() tags every word with the set of up to eight other word
+ *  lists (sources) that contain it, one byte per word id. A game can then
+ *  tell which of its opponent dictionaries know a word it found without
+ *  keeping those dictionaries around.
+ *
+ *  offHeap() copies a dictionary into direct buffers outside the Java heap,
+ *  where it neither counts against the heap size nor gets copied by the
+ *  garbage collector. A loaded snapshot is off-heap as well, and since it is
+ *  mapped read-only, all processes that load the same snapshot file share
+ *  its pages through the page cache.
+ *
+ *  The snapshot is a header of five little-endian ints (magic, version, word
+ *  count, record count, flags) followed by the records, exactly as they are
+ *  searched, by the prefilter data if the flags say there is any, and by the
+ *  source bytes if the flags give a number of sources.
+ *****************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class BoggleDictionary {
+
+    public static final int ALPHABET_SIZE = 27;
+    public static final int QU = 26;
+
+    static final int ROOT = 0;
+    static final int CHILD_MASK = (1 << ALPHABET_SIZE) - 1;
+    static final int TERMINAL = 1 << 31;
+    static final int LONGEST_SHIFT = 27;
+    static final int MAX_LONGEST = 15;
+    static final int RECORD = 3;            // ints per record
+
+    private static final int NONE = -1;
+
+    private static final int MAGIC = 0x42474c44;     // "BGLD"
+    private static final int VERSION = 6;
+    private static final int HEADER_INTS = 5;
+    private static final int HAS_FILTERS = 1;
+    private static final int SOURCES_SHIFT = 8;     // flags bits 8-11: number of sources
+    private static final int MAX_SOURCES = 8;
+
+    // the records, their prefilter data (or null) and the source set of every
+    // word (or null), either on the heap or mapped from a snapshot file
+    private final IntBuffer nodes;
+    private final IntBuffer filters;
+    private final ByteBuffer sources;
+    private final int sourceCount;
+    private final int size;
+
+    private BoggleDictionary(IntBuffer nodes, IntBuffer filters, ByteBuffer sources, int sourceCount, int size) {
+        this.nodes = nodes;
+        this.filters = filters;
+        this.sources = sources;
+        this.sourceCount = sourceCount;
+        this.size = size;
+    }
+
+    /**
+     * Compiles the given words into a dictionary.
+     *
+     * @param directory Each word contains only the uppercase letters A
+     *                  through Z.
+     * @return the compiled dictionary
+     */
+    public static BoggleDictionary compile(String[] directory) {
+        return compile(directory, false);
+    }
+
+    /**
+     * Compiles the given words into a dictionary, optionally with the
+     * prefilter data that lets a search skip subtrees a board cannot spell.
+     *
+     * @param directory Each word contains only the uppercase letters A
+     *                  through Z.
+     * @param filters   whether to compute the prefilter data
+     * @return the compiled dictionary
+     */
+    public static BoggleDictionary compile(String[] directory, boolean filters) {
+        if (directory == null) throw new IllegalArgumentException("directory is null");
+        Builder builder = new Builder();
+        for (String word : directory) {
+            builder.add(word);
+        }
+        return builder.compile(filters);
+    }
+
+    /**
+     * Builds a dictionary from a word list file with one word of uppercase
+     * letters per line (or any ASCII whitespace between words).
+     *
+     * @param filename the name of the word list file
+     * @return the compiled dictionary
+     */
+    public static BoggleDictionary read(String filename) {
+        return read(filename, false, 1);
+    }
+
+    /**
+     * Builds a dictionary from a word list file, optionally with prefilter
+     * data. The file is split into the given number of shards at word
+     * boundaries, and the shards are built in parallel and merged.
+     *
+     * @param filename the name of the word list file
+     * @param filters  whether to compute the prefilter data
+     * @param shards   the number of shards to build in parallel
+     * @return the compiled dictionary
+     */
+    public static BoggleDictionary read(String filename, boolean filters, int shards) {
+        if (filename == null) throw new IllegalArgumentException("filename is null");
+        if (shards <= 0) throw new IllegalArgumentException("number of shards must be a positive integer");
+        ByteBuffer bytes = map(filename);
+        int[] bounds = new int[shards + 1];
+        for (int k = 1; k < shards; k++) {
+            int bound = Math.max(bounds[k - 1], (int) ((long) bytes.limit() * k / shards));
+            while (bound < bytes.limit() && !isSpace(bytes.get(bound))) bound++;
+            bounds[k] = bound;
+        }
+        bounds[shards] = bytes.limit();
+        Builder builder;
+        if (shards == 1) {
+            builder = parse(bytes, 0, bytes.limit());
+        }
+        else {
+            builder = IntStream.range(0, shards)
+                               .parallel()
+                               .mapToObj(k -> parse(bytes, bounds[k], bounds[k + 1]))
+                               .reduce(Builder::merge)
+                               .get();
+        }
+        return builder.compile(filters);
+    }
+
+    private static Builder parse(ByteBuffer bytes, int from, int to) {
+        // English word lists come to about one trie node per four bytes
+        Builder builder = new Builder(Math.max(1024, (to - from) / 4));
+        int i = from;
+        while (i < to) {
+            while (i < to && isSpace(bytes.get(i))) i++;
+            int start = i;
+            while (i < to && !isSpace(bytes.get(i))) i++;
+            if (i > start) builder.add(bytes, start, i);
+        }
+        return builder;
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f' || b == 0x0b;
+    }
+
+    private static ByteBuffer map(String filename) {
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r");
+             FileChannel channel = file.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Maps a snapshot written by {@link #save(String)} into memory. The records
+     * are searched in place, so no words are parsed and the trie takes no
+     * heap space.
+     *
+     * @param filename the name of the snapshot file
+     * @return the dictionary stored in the snapshot
+     */
+    public static BoggleDictionary load(String filename) {
+        if (filename == null) throw new IllegalArgumentException("filename is null");
+        ByteBuffer bytes = map(filename);
+        IntBuffer ints = bytes.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        if (ints.limit() < HEADER_INTS || ints.get(0) != MAGIC)
+            throw new IllegalArgumentException("not a dictionary snapshot: " + filename);
+        if (ints.get(1) != VERSION)
+            throw new IllegalArgumentException("unsupported snapshot version " + ints.get(1));
+        int size = ints.get(2);
+        int records = ints.get(3);
+        boolean hasFilters = (ints.get(4) & HAS_FILTERS) != 0;
+        int sourceCount = ints.get(4) >>> SOURCES_SHIFT;
+        int words = HEADER_INTS + (hasFilters ? RECORD + 4 : RECORD) * records;
+        if (bytes.limit() != 4L * words + (sourceCount > 0 ? size : 0))
+            throw new IllegalArgumentException("truncated snapshot: " + filename);
+        IntBuffer nodes = section(ints, HEADER_INTS, RECORD * records);
+        IntBuffer filters = hasFilters ? section(ints, HEADER_INTS + RECORD * records, 4 * records) : null;
+        ByteBuffer sources = null;
+        if (sourceCount > 0) {
+            sources = bytes.duplicate();
+            sources.position(4 * words);
+            sources = sources.slice();
+        }
+        return new BoggleDictionary(nodes, filters, sources, sourceCount, size);
+    }
+
+    private static IntBuffer section(IntBuffer ints, int offset, int length) {
+        IntBuffer section = ints.duplicate();
+        section.position(offset);
+        section.limit(offset + length);
+        return section.slice();
+    }
+
+    /**
+     * Returns an equivalent dictionary in which all nodes that end the same
+     * set of suffixes share their children, which makes it a minimal acyclic
+     * automaton (DAWG). Word ids, prefilter data and sources carry over.
+     *
+     * @return the minimized dictionary
+     */
+    public BoggleDictionary minimize() {
+        int[] trie = new int[nodes.limit()];
+        nodes.duplicate().get(trie);
+        int records = trie.length / RECORD;
+
+        // number the equivalence classes of the records, children first
+        int[] state = new int[records];
+        HashMap<IntArray, Integer> states = new HashMap<>();
+        List<int[]> signatures = new ArrayList<>();
+        for (int r : postOrder(trie)) {
+            int mask = trie[RECORD * r + 1];
+            int[] signature = new int[1 + Integer.bitCount(mask & CHILD_MASK)];
+            signature[0] = mask;
+            for (int k = 1; k < signature.length; k++) {
+                signature[k] = state[trie[RECORD * r] + k - 1];
+            }
+            IntArray key = new IntArray(signature);
+            Integer id = states.get(key);
+            if (id == null) {
+                id = signatures.size();
+                states.put(key, id);
+                signatures.add(signature);
+            }
+            state[r] = id;
+        }
+
+        // give every state with children one block, in depth-first order
+        int[] block = new int[signatures.size()];
+        boolean[] placed = new boolean[signatures.size()];
+        int[] stack = new int[signatures.size()];
+        int top = 0;
+        int next = 1;
+        int root = state[ROOT];
+        placed[root] = true;
+        stack[top++] = root;
+        while (top > 0) {
+            int k = stack[--top];
+            int[] signature = signatures.get(k);
+            block[k] = next;
+            next += signature.length - 1;
+            for (int j = signature.length - 1; j >= 1; j--) {
+                int child = signature[j];
+                if (placed[child] || signatures.get(child).length == 1) continue;
+                placed[child] = true;
+                stack[top++] = child;
+            }
+        }
+
+        int[] dawg = new int[RECORD * next];
+        dawg[RECORD * ROOT] = block[root];
+        dawg[RECORD * ROOT + 1] = signatures.get(root)[0];
+        for (int k = 0; k < signatures.size(); k++) {
+            if (!placed[k]) continue;
+            int[] signature = signatures.get(k);
+            for (int j = 1; j < signature.length; j++) {
+                int child = signature[j];
+                int r = block[k] + j - 1;
+                dawg[RECORD * r] = block[child];
+                dawg[RECORD * r + 1] = signatures.get(child)[0];
+            }
+        }
+        computeRanks(dawg);
+        IntBuffer dawgFilters = filters == null ? null : IntBuffer.wrap(computeFilters(dawg));
+        return new BoggleDictionary(IntBuffer.wrap(dawg), dawgFilters, sources, sourceCount, size);
+    }
+
+    /**
+     * An int[] with value semantics, used as a hash key.
+     */
+    private static final class IntArray {
+        private final int[] a;
+        private final int hash;
+
+        IntArray(int[] a) {
+            this.a = a;
+            this.hash = Arrays.hashCode(a);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof IntArray && Arrays.equals(a, ((IntArray) other).a);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Writes the dictionary as a snapshot that {@link #load(String)} can map.
+     *
+     * @param filename the name of the snapshot file
+     */
+    public void save(String filename) {
+        if (filename == null) throw new IllegalArgumentException("filename is null");
+        int length = HEADER_INTS + nodes.limit() + (filters == null ? 0 : filters.limit());
+        ByteBuffer bytes = ByteBuffer.allocate(4 * length + (sources == null ? 0 : size))
+                                     .order(ByteOrder.LITTLE_ENDIAN);
+        IntBuffer ints = bytes.asIntBuffer();
+        int flags = (filters == null ? 0 : HAS_FILTERS) | sourceCount << SOURCES_SHIFT;
+        ints.put(MAGIC).put(VERSION).put(size).put(records()).put(flags);
+        ints.put(nodes.duplicate());
+        if (filters != null) ints.put(filters.duplicate());
+        if (sources != null) {
+            bytes.position(4 * length);
+            bytes.put(sources.duplicate());
+            bytes.flip();
+        }
+        try (RandomAccessFile file = new RandomAccessFile(filename, "rw");
+             FileChannel channel = file.getChannel()) {
+            channel.truncate(0);
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Returns the number of distinct words in the dictionary.
+     *
+     * @return the number of words
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns an equivalent dictionary whose records, prefilter data and
+     * sources are copied into direct buffers outside the Java heap, in the
+     * platform's byte order. To share one copy among several processes, save
+     * a snapshot instead and {@link #load(String)} it in each of them.
+     *
+     * @return the off-heap dictionary
+     */
+    public BoggleDictionary offHeap() {
+        IntBuffer directFilters = filters == null ? null : direct(filters);
+        ByteBuffer directSources = null;
+        if (sources != null) {
+            directSources = ByteBuffer.allocateDirect(sources.limit());
+            directSources.put(sources.duplicate()).flip();
+        }
+        return new BoggleDictionary(direct(nodes), directFilters, directSources, sourceCount, size);
+    }
+
+    private static IntBuffer direct(IntBuffer ints) {
+        IntBuffer copy = ByteBuffer.allocateDirect(4 * ints.limit()).order(ByteOrder.nativeOrder()).asIntBuffer();
+        copy.put(ints.duplicate()).flip();
+        return copy;
+    }
+
+    /**
+     * Returns true if the records live outside the Java heap, either copied
+     * there by {@link #offHeap()} or mapped from a snapshot.
+     *
+     * @return true if the dictionary is off-heap
+     */
+    public boolean isOffHeap() {
+        return nodes.isDirect();
+    }
+
+    /**
+     * Returns the number of trie records.
+     *
+     * @return the number of records, including the root
+     */
+    public int records() {
+        return nodes.limit() / RECORD;
+    }
+
+    /**
+     * Returns true if the given word is in the dictionary.
+     *
+     * @param word the word to look up
+     * @return true if the word is in the dictionary
+     */
+    public boolean contains(String word) {
+        int r = find(word);
+        return r != NONE && isWord(r);
+    }
+
+    /**
+     * Returns a dictionary with the same words and word ids in which every
+     * word is tagged with the sources that contain it: bit i of
+     * {@link #sourcesOf(int)} is set if sources[i] has the word. Words of a
+     * source that are not in this dictionary are ignored.
+     *
+     * @param sources up to eight word lists
+     * @return the tagged dictionary
+     */
+    public BoggleDictionary withSources(String[]... sources) {
+        if (sources == null) throw new IllegalArgumentException("sources is null");
+        if (sources.length > MAX_SOURCES)
+            throw new IllegalArgumentException("at most " + MAX_SOURCES + " sources, not " + sources.length);
+        byte[] flags = new byte[size];
+        for (int i = 0; i < sources.length; i++) {
+            if (sources[i] == null) throw new IllegalArgumentException("source " + i + " is null");
+            for (String word : sources[i]) {
+                int id = id(word);
+                if (id >= 0) flags[id] |= 1 << i;
+            }
+        }
+        return new BoggleDictionary(nodes, filters, ByteBuffer.wrap(flags), sources.length, size);
+    }
+
+    /**
+     * Returns a dictionary with the same words and word ids in which every
+     * word is tagged with the word list files that contain it, in the order
+     * given. The files are parsed in place, like {@link #read(String)} does.
+     *
+     * @param filenames the names of up to eight word list files
+     * @return the tagged dictionary
+     */
+    public BoggleDictionary withSourceFiles(String... filenames) {
+        if (filenames == null) throw new IllegalArgumentException("filenames is null");
+        if (filenames.length > MAX_SOURCES)
+            throw new IllegalArgumentException("at most " + MAX_SOURCES + " sources, not " + filenames.length);
+        byte[] flags = new byte[size];
+        for (int k = 0; k < filenames.length; k++) {
+            if (filenames[k] == null) throw new IllegalArgumentException("filename " + k + " is null");
+            ByteBuffer bytes = map(filenames[k]);
+            int i = 0;
+            while (i < bytes.limit()) {
+                while (i < bytes.limit() && isSpace(bytes.get(i))) i++;
+                int start = i;
+                while (i < bytes.limit() && !isSpace(bytes.get(i))) i++;
+                if (i == start) continue;
+                int id = id(bytes, start, i);
+                if (id >= 0) flags[id] |= 1 << k;
+            }
+        }
+        return new BoggleDictionary(nodes, filters, ByteBuffer.wrap(flags), filenames.length, size);
+    }
+
+    /**
+     * Returns the id of the word in bytes start through end - 1, or -1.
+     */
+    private int id(ByteBuffer bytes, int start, int end) {
+        int r = ROOT;
+        int rank = 0;
+        int id = NONE;
+        for (int i = start; i < end; i++) {
+            int c = bytes.get(i);
+            if (c < 'A' || c > 'Z') return NONE;
+            int s = c - 'A';
+            if (c == 'Q' && i + 1 < end && bytes.get(i + 1) == 'U') {
+                s = QU;
+                i++;
+            }
+            r = child(r, s);
+            if (r == NONE) return NONE;
+            id = rank + before(r);
+            rank = isWord(r) ? id + 1 : id;
+        }
+        return r != ROOT && isWord(r) ? id : NONE;
+    }
+
+    /**
+     * Returns the number of sources the words are tagged with.
+     *
+     * @return the number of sources, zero if the words are not tagged
+     */
+    public int sources() {
+        return sourceCount;
+    }
+
+    /**
+     * Returns the sources that contain the word with the given id, as a set
+     * of bits in the order the sources were given to withSources().
+     *
+     * @param id a word id
+     * @return the bits of the sources that contain the word
+     */
+    public int sourcesOf(int id) {
+        if (id < 0 || id >= size) throw new IllegalArgumentException("word id " + id + " is out of range");
+        return sources == null ? 0 : sources.get(id) & 0xff;
+    }
+
+    /**
+     * Returns the id of the given word: its rank in the dictionary, between 0
+     * and size() - 1. The solver reports words by the same ids.
+     *
+     * @param word the word to look up
+     * @return the id of the word, or -1 if it is not in the dictionary
+     */
+    public int id(String word) {
+        int r = ROOT;
+        int rank = 0;
+        int id = NONE;
+        int length = word.length();
+        for (int i = 0; i < length; i++) {
+            char c = word.charAt(i);
+            if (c < 'A' || c > 'Z') return NONE;
+            int s = c - 'A';
+            if (c == 'Q' && i + 1 < length && word.charAt(i + 1) == 'U') {
+                s = QU;
+                i++;
+            }
+            r = child(r, s);
+            if (r == NONE) return NONE;
+            id = rank + before(r);
+            rank = isWord(r) ? id + 1 : id;
+        }
+        return r != ROOT && isWord(r) ? id : NONE;
+    }
+
+    /**
+     * Returns the word with the given id.
+     *
+     * @param id the id of a word, between 0 and size() - 1
+     * @return the word
+     */
+    public String word(int id) {
+        if (id < 0 || id >= size) throw new IllegalArgumentException("word id " + id + " is out of range");
+        StringBuilder word = new StringBuilder();
+        int r = ROOT;
+        int rank = 0;
+        while (true) {
+            // the last child whose words start at or before the id
+            int first = firstChild(r);
+            int mask = childMask(r);
+            int c = first;
+            int symbol = Integer.numberOfTrailingZeros(mask);
+            int k = 0;
+            for (int m = mask & (mask - 1); m != 0; m &= m - 1) {
+                if (rank + before(first + ++k) > id) break;
+                c = first + k;
+                symbol = Integer.numberOfTrailingZeros(m);
+            }
+            if (symbol == QU) word.append("QU");
+            else word.append((char) ('A' + symbol));
+            int at = rank + before(c);
+            if (at == id && isWord(c)) return word.toString();
+            rank = isWord(c) ? at + 1 : at;
+            r = c;
+        }
+    }
+
+    /**
+     * Returns the number of letters of every word, indexed by word id and
+     * capped at Byte.MAX_VALUE.
+     */
+    byte[] lengths() {
+        byte[] lengths = new byte[size];
+        lengths(ROOT, 0, 0, lengths);
+        return lengths;
+    }
+
+    private void lengths(int r, int rank, int length, byte[] lengths) {
+        int first = firstChild(r);
+        int k = 0;
+        for (int mask = childMask(r); mask != 0; mask &= mask - 1) {
+            int c = first + k++;
+            int letters = length + (Integer.numberOfTrailingZeros(mask) == QU ? 2 : 1);
+            int id = rank + before(c);
+            if (isWord(c)) lengths[id] = (byte) Math.min(letters, Byte.MAX_VALUE);
+            lengths(c, isWord(c) ? id + 1 : id, letters, lengths);
+        }
+    }
+
+    /**
+     * Returns the symbol of the given letter, or -1 if it is not a letter
+     * between 'A' and 'Z'. A 'Q' maps to the "QU" symbol, the way it reads
+     * on a board.
+     *
+     * @param c the letter of a tile
+     * @return the symbol of the tile
+     */
+    public static int tileSymbol(char c) {
+        if (c < 'A' || c > 'Z') return NONE;
+        return c == 'Q' ? QU : c - 'A';
+    }
+
+    /**
+     * Returns the record reached by spelling out the given word from the
+     * root, or -1 if there is none.
+     */
+    int find(String word) {
+        int r = ROOT;
+        int length = word.length();
+        for (int i = 0; i < length; i++) {
+            char c = word.charAt(i);
+            if (c < 'A' || c > 'Z') return NONE;
+            int s = c - 'A';
+            if (c == 'Q' && i + 1 < length && word.charAt(i + 1) == 'U') {
+                s = QU;
+                i++;
+            }
+            r = child(r, s);
+            if (r == NONE) return NONE;
+        }
+        return r;
+    }
+
+    /**
+     * Returns the child of record r for symbol s, or -1 if there is none.
+     */
+    int child(int r, int s) {
+        int mask = nodes.get(RECORD * r + 1);
+        if ((mask & (1 << s)) == 0) return NONE;
+        return nodes.get(RECORD * r) + Integer.bitCount(mask & ((1 << s) - 1));
+    }
+
+    int firstChild(int r) {
+        return nodes.get(RECORD * r);
+    }
+
+    int childMask(int r) {
+        return nodes.get(RECORD * r + 1) & CHILD_MASK;
+    }
+
+    boolean isWord(int r) {
+        return (nodes.get(RECORD * r + 1) & TERMINAL) != 0;
+    }
+
+    /**
+     * Returns the most letters that a word below record r adds to the path
+     * to r, capped at 15. Every word of 8 or more letters scores the same, so
+     * the cap never hides a better word.
+     */
+    int longest(int r) {
+        return (nodes.get(RECORD * r + 1) >>> LONGEST_SHIFT) & MAX_LONGEST;
+    }
+
+    /**
+     * Returns the number of words below the earlier siblings of record r.
+     */
+    int before(int r) {
+        return nodes.get(RECORD * r + 2);
+    }
+
+    /**
+     * Returns the mean number of children of the records of one- and
+     * two-symbol prefixes that have any, the number of symbols a path can
+     * usually go on with where a search spends most of its steps. Deeper
+     * records mostly have one child and are left out, or the long tails of
+     * single words would hide the branching near the root.
+     */
+    double branching() {
+        long children = 0;
+        int parents = 0;
+        int mask = childMask(ROOT);
+        for (int c = firstChild(ROOT); mask != 0; c++, mask &= mask - 1) {
+            int below = childMask(c);
+            if (below != 0) {
+                children += Integer.bitCount(below);
+                parents++;
+            }
+            for (int g = firstChild(c); below != 0; g++, below &= below - 1) {
+                int count = Integer.bitCount(childMask(g));
+                if (count == 0) continue;
+                children += count;
+                parents++;
+            }
+        }
+        return parents == 0 ? 0 : (double) children / parents;
+    }
+
+    /**
+     * Returns true if the dictionary carries prefilter data.
+     *
+     * @return true if the dictionary was compiled with filters
+     */
+    public boolean hasFilters() {
+        return filters != null;
+    }
+
+    int needed(int r) {
+        return filters.get(4 * r);
+    }
+
+    int neededTwice(int r) {
+        return filters.get(4 * r + 1);
+    }
+
+    int firstBigram(int r) {
+        return filters.get(4 * r + 2);
+    }
+
+    int secondBigram(int r) {
+        return filters.get(4 * r + 3);
+    }
+
+    /**
+     * Returns the index of the bigram of the two symbols.
+     */
+    static int bigram(int first, int second) {
+        return first * ALPHABET_SIZE + second;
+    }
+
+    /**
+     * Returns every record once, each one after all of its children. In a
+     * trie this is just the records backwards, but in a DAWG a shared block
+     * may be laid out before some of the records that point to it.
+     */
+    private static int[] postOrder(int[] nodes) {
+        int records = nodes.length / RECORD;
+        int[] order = new int[records];
+        boolean childrenAfter = true;
+        for (int r = 0; r < records && childrenAfter; r++) {
+            if ((nodes[RECORD * r + 1] & CHILD_MASK) != 0 && nodes[RECORD * r] <= r) childrenAfter = false;
+        }
+        if (childrenAfter) {
+            for (int k = 0; k < records; k++) {
+                order[k] = records - 1 - k;
+            }
+            return order;
+        }
+        int n = 0;
+        boolean[] seen = new boolean[records];
+        int[] stack = new int[records];
+        boolean[] expanded = new boolean[records];
+        int top = 0;
+        stack[top++] = ROOT;
+        seen[ROOT] = true;
+        while (top > 0) {
+            int r = stack[top - 1];
+            if (expanded[r]) {
+                order[n++] = r;
+                top--;
+                continue;
+            }
+            expanded[r] = true;
+            int count = Integer.bitCount(nodes[RECORD * r + 1] & CHILD_MASK);
+            for (int c = nodes[RECORD * r]; count > 0; c++, count--) {
+                if (seen[c]) continue;
+                seen[c] = true;
+                stack[top++] = c;
+            }
+        }
+        return Arrays.copyOf(order, n);
+    }
+
+    /**
+     * Fills in the third field of every record: the number of words below
+     * its earlier siblings.
+     */
+    private static void computeRanks(int[] nodes) {
+        int records = nodes.length / RECORD;
+        int[] words = new int[records];
+        for (int r : postOrder(nodes)) {
+            int below = 0;
+            int count = Integer.bitCount(nodes[RECORD * r + 1] & CHILD_MASK);
+            for (int c = nodes[RECORD * r]; count > 0; c++, count--) {
+                nodes[RECORD * c + 2] = below;
+                below += words[c];
+            }
+            words[r] = below + ((nodes[RECORD * r + 1] & TERMINAL) != 0 ? 1 : 0);
+        }
+    }
+
+    /**
+     * Fills in bits 27-30 of every record: the most letters a word below it
+     * adds, capped at 15. "QU" counts as two letters.
+     */
+    private static void computeLongest(int[] nodes) {
+        for (int r : postOrder(nodes)) {
+            int mask = nodes[RECORD * r + 1] & CHILD_MASK;
+            int longest = 0;
+            int c = nodes[RECORD * r];
+            for (; mask != 0; mask &= mask - 1, c++) {
+                int letters = Integer.numberOfTrailingZeros(mask) == QU ? 2 : 1;
+                int below = (nodes[RECORD * c + 1] >>> LONGEST_SHIFT) & MAX_LONGEST;
+                longest = Math.max(longest, Math.min(MAX_LONGEST, letters + below));
+            }
+            nodes[RECORD * r + 1] |= longest << LONGEST_SHIFT;
+        }
+    }
+
+    /**
+     * Computes the prefilter data, visiting every child before its parent.
+     * The bigrams that all words below a record need are kept as a sorted
+     * list per record while the parents are computed, and only the two
+     * rarest go into the filters.
+     */
+    private static int[] computeFilters(int[] nodes) {
+        int records = nodes.length / RECORD;
+        int[] symbol = new int[records];
+        for (int r = 0; r < records; r++) {
+            int c = nodes[RECORD * r];
+            for (int mask = nodes[RECORD * r + 1] & CHILD_MASK; mask != 0; mask &= mask - 1) {
+                symbol[c++] = Integer.numberOfTrailingZeros(mask);
+            }
+        }
+        double[] rarity = bigramRarity();
+        int[][] bigrams = new int[records][];
+        int[] none = new int[0];
+        int[] filters = new int[4 * records];
+        for (int r : postOrder(nodes)) {
+            int mask = nodes[RECORD * r + 1] & CHILD_MASK;
+            filters[4 * r + 2] = -1;
+            filters[4 * r + 3] = -1;
+            if (mask == 0) continue;
+            int needed = CHILD_MASK;
+            int twice = CHILD_MASK;
+            int[] common = null;
+            int c = nodes[RECORD * r];
+            for (; mask != 0; mask &= mask - 1, c++) {
+                int bit = 1 << symbol[c];
+                int pair = r == ROOT ? -1 : bigram(symbol[r], symbol[c]);
+                int[] below;
+                if ((nodes[RECORD * c + 1] & TERMINAL) != 0) {
+                    // the child itself is a word, which needs only its symbol
+                    needed &= bit;
+                    twice = 0;
+                    below = none;
+                }
+                else {
+                    int childNeeded = filters[4 * c];
+                    needed &= bit | childNeeded;
+                    twice &= filters[4 * c + 1] | (bit & childNeeded);
+                    below = bigrams[c];
+                }
+                int[] path = pair < 0 ? below : with(below, pair);
+                common = common == null ? path : intersect(common, path);
+            }
+            filters[4 * r] = needed;
+            filters[4 * r + 1] = twice;
+            bigrams[r] = common.length == 0 ? none : common;
+            int first = -1;
+            int second = -1;
+            for (int pair : common) {
+                if (first < 0 || rarity[pair] < rarity[first]) {
+                    second = first;
+                    first = pair;
+                }
+                else if (second < 0 || rarity[pair] < rarity[second]) {
+                    second = pair;
+                }
+            }
+            filters[4 * r + 2] = first;
+            filters[4 * r + 3] = second;
+        }
+        return filters;
+    }
+
+    /**
+     * Returns how common every bigram is in English, taking the letters as
+     * independent.
+     */
+    private static double[] bigramRarity() {
+        double[] rarity = new double[ALPHABET_SIZE * ALPHABET_SIZE];
+        for (int first = 0; first < ALPHABET_SIZE; first++) {
+            for (int second = 0; second < ALPHABET_SIZE; second++) {
+                rarity[bigram(first, second)] = frequency(first) * frequency(second);
+            }
+        }
+        return rarity;
+    }
+
+    private static double frequency(int symbol) {
+        return BoggleBoard.FREQUENCIES[symbol == QU ? 'Q' - 'A' : symbol];
+    }
+
+    /**
+     * Returns the sorted list with the value added.
+     */
+    private static int[] with(int[] sorted, int value) {
+        int k = Arrays.binarySearch(sorted, value);
+        if (k >= 0) return sorted;
+        k = -k - 1;
+        int[] result = new int[sorted.length + 1];
+        System.arraycopy(sorted, 0, result, 0, k);
+        result[k] = value;
+        System.arraycopy(sorted, k, result, k + 1, sorted.length - k);
+        return result;
+    }
+
+    /**
+     * Returns the values that both sorted lists hold.
+     */
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int n = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+
+    /**
+     * A mutable trie kept as first-child/next-sibling lists in growable
+     * arrays, with siblings ordered by symbol.
+     */
+    private static class Builder {
+        private int[] symbol;
+        private int[] firstChild;
+        private int[] nextSibling;
+        private boolean[] terminal;
+        private int n = 1;       // node 0 is the root
+        private int words = 0;
+
+        // the nodes along the last word added, which the next word reuses for
+        // as long as it starts with the same symbols (word lists are sorted)
+        private int[] pathSymbols = new int[64];
+        private int[] pathNodes = new int[64];
+        private int pathLength;
+        private boolean diverged;
+
+        Builder() {
+            this(1024);
+        }
+
+        Builder(int capacity) {
+            symbol = new int[capacity];
+            firstChild = new int[capacity];
+            nextSibling = new int[capacity];
+            terminal = new boolean[capacity];
+            firstChild[0] = NONE;
+            nextSibling[0] = NONE;
+        }
+
+        void add(String word) {
+            int length = word.length();
+            if (length == 0) return;
+            int x = 0;
+            int depth = 0;
+            for (int i = 0; i < length; i++) {
+                char c = word.charAt(i);
+                if (c < 'A' || c > 'Z')
+                    throw new IllegalArgumentException("invalid character in " + word);
+                int s = c - 'A';
+                if (c == 'Q' && i + 1 < length && word.charAt(i + 1) == 'U') {
+                    s = QU;
+                    i++;
+                }
+                x = step(depth++, x, s);
+            }
+            end(x);
+        }
+
+        /**
+         * Adds the ASCII word in bytes start through end - 1.
+         */
+        void add(ByteBuffer bytes, int start, int end) {
+            int x = 0;
+            int depth = 0;
+            for (int i = start; i < end; i++) {
+                int c = bytes.get(i);
+                if (c < 'A' || c > 'Z')
+                    throw new IllegalArgumentException("invalid character in " + ascii(bytes, start, end));
+                int s = c - 'A';
+                if (c == 'Q' && i + 1 < end && bytes.get(i + 1) == 'U') {
+                    s = QU;
+                    i++;
+                }
+                x = step(depth++, x, s);
+            }
+            end(x);
+        }
+
+        /**
+         * Returns the child of node x for symbol s, the depth-th symbol of
+         * the word being added.
+         */
+        private int step(int depth, int x, int s) {
+            if (depth == 0) diverged = false;
+            if (!diverged && depth < pathLength && pathSymbols[depth] == s) return pathNodes[depth];
+            diverged = true;
+            int y = childOrNew(x, s);
+            if (depth == pathSymbols.length) {
+                pathSymbols = Arrays.copyOf(pathSymbols, 2 * depth);
+                pathNodes = Arrays.copyOf(pathNodes, 2 * depth);
+            }
+            pathSymbols[depth] = s;
+            pathNodes[depth] = y;
+            pathLength = depth + 1;
+            return y;
+        }
+
+        private static String ascii(ByteBuffer bytes, int start, int end) {
+            char[] word = new char[end - start];
+            for (int i = start; i < end; i++) {
+                word[i - start] = (char) (bytes.get(i) & 0xff);
+            }
+            return new String(word);
+        }
+
+        private void end(int x) {
+            if (!terminal[x]) {
+                terminal[x] = true;
+                words++;
+            }
+        }
+
+        /**
+         * Adds all words of the other builder to this one and returns this.
+         */
+        Builder merge(Builder other) {
+            merge(0, other, 0);
+            return this;
+        }
+
+        private void merge(int x, Builder other, int y) {
+            if (other.terminal[y]) end(x);
+            for (int c = other.firstChild[y]; c != NONE; c = other.nextSibling[c]) {
+                merge(childOrNew(x, other.symbol[c]), other, c);
+            }
+        }
+
+        private int childOrNew(int x, int s) {
+            int prev = NONE;
+            int y = firstChild[x];
+            while (y != NONE && symbol[y] < s) {
+                prev = y;
+                y = nextSibling[y];
+            }
+            if (y != NONE && symbol[y] == s) return y;
+            int z = newNode(s);
+            nextSibling[z] = y;
+            if (prev == NONE) firstChild[x] = z;
+            else nextSibling[prev] = z;
+            return z;
+        }
+
+        private int newNode(int s) {
+            if (n == symbol.length) {
+                int capacity = 2 * n;
+                symbol = Arrays.copyOf(symbol, capacity);
+                firstChild = Arrays.copyOf(firstChild, capacity);
+                nextSibling = Arrays.copyOf(nextSibling, capacity);
+                terminal = Arrays.copyOf(terminal, capacity);
+            }
+            symbol[n] = s;
+            firstChild[n] = NONE;
+            nextSibling[n] = NONE;
+            return n++;
+        }
+
+        /**
+         * Lays the trie out in depth-first order, so that a search that
+         * goes down the trie mostly reads nearby records.
+         */
+        BoggleDictionary compile(boolean withFilters) {
+            int[] nodes = new int[RECORD * n];
+            int[] builderNode = new int[n];     // record -> builder node
+            int[] stack = new int[n];
+            int top = 0;
+            int next = 1;
+            stack[top++] = ROOT;
+            while (top > 0) {
+                int r = stack[--top];
+                int x = builderNode[r];
+                int mask = terminal[x] ? TERMINAL : 0;
+                int first = next;
+                for (int y = firstChild[x]; y != NONE; y = nextSibling[y]) {
+                    mask |= 1 << symbol[y];
+                    builderNode[next++] = y;
+                }
+                nodes[RECORD * r] = first;
+                nodes[RECORD * r + 1] = mask;
+                for (int c = next - 1; c >= first; c--) {
+                    stack[top++] = c;
+                }
+            }
+            computeRanks(nodes);
+            computeLongest(nodes);
+            IntBuffer filters = withFilters ? IntBuffer.wrap(computeFilters(nodes)) : null;
+            return new BoggleDictionary(IntBuffer.wrap(nodes), filters, null, 0, words);
+        }
+    }
+
+    /**
+     * Compiles the word list named by the first argument and saves it as the
+     * snapshot named by the second, or next to it with a ".dict" extension.
+     * With -filters before the file names, the snapshot includes the
+     * prefilter data, and with -dawg it holds the minimized dictionary.
+     */
+    public static void main(String[] args) {
+        boolean withFilters = false;
+        boolean dawg = false;
+        List<String> sources = new ArrayList<>();
+        int i = 0;
+        for (; i < args.length && args[i].startsWith("-"); i++) {
+            if (args[i].equals("-filters")) withFilters = true;
+            else if (args[i].equals("-dawg")) dawg = true;
+            else if (args[i].equals("-source") && i + 1 < args.length) sources.add(args[++i]);
+            else break;
+        }
+        args = Arrays.copyOfRange(args, i, args.length);
+        if (args.length < 1 || args.length > 2) {
+            StdOut.println("Usage: java BoggleDictionary [-filters] [-dawg] [-source words.txt]... "
+                           + "dictionary.txt [snapshot]");
+            return;
+        }
+        String source = args[0];
+        String target = args.length == 2 ? args[1] : source.replaceFirst("\\.txt$", "") + ".dict";
+        long start = System.nanoTime();
+        BoggleDictionary dictionary = read(source, withFilters, 1);
+        if (dawg) dictionary = dictionary.minimize();
+        if (!sources.isEmpty()) dictionary = dictionary.withSourceFiles(sources.toArray(new String[0]));
+        dictionary.save(target);
+        long compiled = System.nanoTime();
+        BoggleDictionary loaded = load(target);
+        long mapped = System.nanoTime();
+        StdOut.printf("%s: %d words, %d records%n", target, loaded.size(), loaded.records());
+        StdOut.printf("compile %.1f ms, load %.3f ms%n", (compiled - start) / 1e6, (mapped - compiled) / 1e6);
+    }
+}
@@ -1,13 +1,19 @@
 /******************************************************************************
  *  Compilation:  javac BoggleGame.java
  *  Execution:    java BoggleGame [m n]
- *  Dependencies: BoggleSolver.java BoggleBoard.java 
+ *  Dependencies: BoggleSolver.java BoggleBoard.java BoggleGenerator.java
  *  Author:       Matthew Drabick
  *
  *  GUI for the boggle solver. Pits the user against a computer opponent
  *  of various difficulties. Can be launched from the command line, where 
  *  the default size of the board for that game must be specified. 
  *  
+ *  Boards are rolled and solved ahead of time by background threads and
+ *  kept in a small pool, so starting a new game does not wait for the
+ *  solver unless the pool has run dry. The solver also returns a path for
+ *  every valid word, from which a typed word is highlighted directly; other
+ *  input is matched by extending the partial paths of the last keystroke.
+ *
  *  To add: Way to change the size of the board from inside the game
  *
  *  % javac BoggleGame.java
@@ -37,16 +43,18 @@ import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
-import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import javax.swing.*;
 
-import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.StdRandom;
-import edu.princeton.cs.algs4.SET;
 
 public class BoggleGame extends JFrame {
     private static final int GAME_TIME = 180;                 // in seconds
@@ -83,11 +91,22 @@ public class BoggleGame extends JFrame {
     private static final int HARD        = 3;
     private static final int IMPOSSIBLE  = 4;
 
+    // bits of the source dictionaries that a word appears in
+    // (words that appear in nursery rhymes, Shakespeare, common words, and Algorithms 4/e)
+    private static final int IN_NURSERY     = 1;
+    private static final int IN_SHAKESPEARE = 2;
+    private static final int IN_COMMON      = 4;
+    private static final int IN_ALGS4       = 8;
+
     // keep these two values in sync!
     // used to force the JTextfield and the JList to be the same length 
     private static final int DEF_COLUMNS = 10;
     private static final String MAX_WORD_SIZE = "INCONSEQUENTIALLY";
 
+    // boards solved ahead of time, and the background threads that solve them
+    private static final int POOL_SIZE = 4;
+    private static final int POOL_THREADS = 2;
+
 
     // keeps track of the level
     private int gameDifficulty = 0;
@@ -105,20 +124,16 @@ public class BoggleGame extends JFrame {
     private String[] emptyList = new String[0]; 
 
     private LinkedHashSet<String> foundWords;      // to keep words in same order as entered
-    private TreeSet<String> validWords;
+    private TreeMap<String, Integer> validWords;   // valid words and their scores
     private TreeSet<String> opponentFoundWords;
     private JList foundWordsList;
     private JList validWordsList;
     private JList opponentFoundWordsList;
     private int oppCurScore;
     private BoggleBoard board;
-
-    // dictionaries
-    // (words that appear in Shakespeare, nursery rhymes, common words, and Algorithms 4/e)
-    private SET<String> shakespeareDictionary;
-    private SET<String> nurseryDictionary;
-    private SET<String> commonDictionary;
-    private SET<String> algs4Dictionary;
+    private BogglePaths paths;                      // a path for every valid word
+    private BlockingQueue<SolvedBoard> pool;
+    private BoggleGenerator generator;              // rolls boards when the pool is empty
 
     // GUI elements 
     private JMenuBar menuBar;
@@ -383,51 +398,82 @@ public class BoggleGame extends JFrame {
                     .addComponent(opponentPanel))
         );
 
-        // all words in shakespeare
-        In in1 = new In(new File("dictionary-shakespeare.txt"));
-        shakespeareDictionary = new SET<String>();
-        for (String s : in1.readAllStrings())
-            shakespeareDictionary.add(s);
-
-        // all words in shakespeare
-        In in2 = new In(new File("dictionary-nursery.txt"));
-        nurseryDictionary = new SET<String>();
-        for (String s : in2.readAllStrings())
-            nurseryDictionary.add(s);
-
-        // about 20K common words
-        In in3 = new In(new File("dictionary-common.txt"));
-        commonDictionary = new SET<String>();
-        for (String s : in3.readAllStrings())
-            commonDictionary.add(s);
-
-        // all words in Algorithms 4/e
-        In in4 = new In(new File("dictionary-algs4.txt"));
-        algs4Dictionary = new SET<String>();
-        for (String s : in4.readAllStrings())
-            algs4Dictionary.add(s);
-
-        // dictionary
-        In in = new In(new File("dictionary-yawl.txt"));
-        String[] dictionary = in.readAllStrings();
-
-        // create the Boggle solver with the given dictionary
+        // create the Boggle solver with the given dictionary, with every word
+        // tagged with the opponent's dictionaries that contain it, in the
+        // order of the IN_ bits
+        BoggleDictionary dictionary = BoggleDictionary.read("dictionary-yawl.txt")
+                                                      .withSourceFiles("dictionary-nursery.txt",
+                                                                       "dictionary-shakespeare.txt",
+                                                                       "dictionary-common.txt",
+                                                                       "dictionary-algs4.txt");
         solver = new BoggleSolver(dictionary);
+        startPool();
 
         newGame();
         this.pack();   
     }
     
     /**
-     * Start a new game, can be called via the menu selection, the button, or CMD+N (CRTL+N).
+     * A rolled board with its valid words and their paths.
      */
-    private void newGame() {
-        if (BOARD_ROWS == 4 && BOARD_COLS == 4) {
-            board = new BoggleBoard();
+    private static class SolvedBoard {
+        private final BoggleBoard board;
+        private final BogglePaths paths;
+
+        SolvedBoard(BoggleBoard board, BogglePaths paths) {
+            this.board = board;
+            this.paths = paths;
         }
-        else {
-            board = new BoggleBoard(BOARD_ROWS, BOARD_COLS);
+    }
+
+    /**
+     * Start the threads that keep the pool of solved boards full. A 4-by-4
+     * board is rolled with the 1992 dice, any other with letter frequencies.
+     * Every thread rolls boards with a generator of its own.
+     */
+    private void startPool() {
+        BoggleGenerator.Letters letters = BOARD_ROWS == 4 && BOARD_COLS == 4
+                                          ? BoggleGenerator.Letters.BOGGLE_1992
+                                          : BoggleGenerator.Letters.FREQUENCIES;
+        generator = new BoggleGenerator(letters, BOARD_ROWS, BOARD_COLS, System.nanoTime());
+        pool = new ArrayBlockingQueue<SolvedBoard>(POOL_SIZE);
+        for (int t = 0; t < POOL_THREADS; t++) {
+            final BoggleGenerator own = generator.split();
+            Thread worker = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        while (true) {
+                            pool.put(solve(own));
+                        }
+                    }
+                    catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, "BoggleGame pool " + t);
+            worker.setDaemon(true);
+            worker.setPriority(Thread.MIN_PRIORITY);
+            worker.start();
         }
+    }
+
+    /**
+     * Roll a board with the given generator and solve it.
+     */
+    private SolvedBoard solve(BoggleGenerator rolls) {
+        BoggleBoard rolled = BoggleGenerator.toBoard(BOARD_ROWS, BOARD_COLS, rolls.next());
+        return new SolvedBoard(rolled, solver.getAllValidPaths(rolled));
+    }
+
+    /**
+     * Start a new game, can be called via the menu selection, the button, or CMD+N (CRTL+N).
+     */
+    private void newGame() {
+        // take a board solved in the background, or solve one now if there is none
+        SolvedBoard next = pool.poll();
+        if (next == null) next = solve(generator);
+        board = next.board;
+        paths = next.paths;
         clock.setForeground(Color.BLACK);
         entryField.requestFocus();
         inGame = true;
@@ -445,53 +491,23 @@ public class BoggleGame extends JFrame {
         bp.setBoard();
         bp.unhighlightCubes();
 
-        // all valid words
-        Iterable<String> words = solver.getAllValidWords(board);
-        validWords = new TreeSet<String>();
+        // all valid words, with their scores and dictionaries looked up by word id
+        validWords = new TreeMap<String, Integer>();
+        opponentFoundWords = new TreeSet<String>();
         int possiblePoints = 0;
-        for (String s : words) {
-            validWords.add(s);
-            possiblePoints += scoreWord(s);
+        oppCurScore = 0;
+        for (int k = 0; k < paths.size(); k++) {
+            int id = paths.id(k);
+            String word = paths.word(k);
+            int score = solver.scoreOf(id);
+            validWords.put(word, score);
+            possiblePoints += score;
+            if (opponentFinds(solver.sourcesOf(id))) {
+                opponentFoundWords.add(word);
+                oppCurScore += score;
+            }
         }
         possiblePointsLabel.setText("Possible Points: " + possiblePoints);
-
-        // opponent's words
-        opponentFoundWords = new TreeSet<String>();
-        if (gameDifficulty == NURSERY) {
-            for (String word : validWords)
-                if (nurseryDictionary.contains(word))
-                    opponentFoundWords.add(word);
-        }
-
-        else if (gameDifficulty == SHAKESPEARE) {
-            for (String word : validWords)
-                if (shakespeareDictionary.contains(word) && StdRandom.uniform(3) != 0)
-                    opponentFoundWords.add(word);
-        }
-
-        else if (gameDifficulty == ALGORITHMS) {
-            for (String word : validWords)
-                if (algs4Dictionary.contains(word))
-                    opponentFoundWords.add(word);
-        }
-
-        else if (gameDifficulty == HARD) {
-            for (String word : validWords)
-                if (commonDictionary.contains(word) && StdRandom.bernoulli())
-                    opponentFoundWords.add(word);
-        }
-
-        else if (gameDifficulty == IMPOSSIBLE) {
-            for (String word : validWords)
-                if (StdRandom.uniform(4) != 0)
-                    opponentFoundWords.add(word);
-        }
-
-        // opponent's score
-        oppCurScore = 0;
-        for (String word : opponentFoundWords)
-            oppCurScore += scoreWord(word);
-
         oppScoreLabel.setText("Opponent's Points: " + oppCurScore);
         timer.cancel();
         elapsedTime = -1; 
@@ -500,6 +516,24 @@ public class BoggleGame extends JFrame {
         
     }
     
+    /**
+     * Decide whether the opponent finds a valid word, given the bits of the
+     * dictionaries the word appears in.
+     */
+    private boolean opponentFinds(int sources) {
+        if (gameDifficulty == NURSERY)
+            return (sources & IN_NURSERY) != 0;
+        else if (gameDifficulty == SHAKESPEARE)
+            return (sources & IN_SHAKESPEARE) != 0 && StdRandom.uniform(3) != 0;
+        else if (gameDifficulty == ALGORITHMS)
+            return (sources & IN_ALGS4) != 0;
+        else if (gameDifficulty == HARD)
+            return (sources & IN_COMMON) != 0 && StdRandom.bernoulli();
+        else if (gameDifficulty == IMPOSSIBLE)
+            return StdRandom.uniform(4) != 0;
+        return false;
+    }
+
     /**
      * End the current game, can be called via the menu selection, the button, or CMD+E (CRTL+E).
      */
@@ -512,13 +546,13 @@ public class BoggleGame extends JFrame {
         entryField.setEnabled(false);
 
         // display list of all valid words
-        validWordsList.setListData(validWords.toArray());
+        validWordsList.setListData(validWords.keySet().toArray());
 
         // highlight found words by specifying indices of found words
         int[] indices = new int[foundWords.size()];
         int i = 0;
         int n = 0;
-        for (String s : validWords) {
+        for (String s : validWords.keySet()) {
             if (foundWords.contains(s))
                 indices[i++] = n;
             n++;
@@ -533,8 +567,8 @@ public class BoggleGame extends JFrame {
         int opponentScore = oppCurScore;
         for (String s : foundWords) {
             if (opponentFoundWords.contains(s)) {
-                playerScore   -= scoreWord(s);
-                opponentScore -= scoreWord(s);
+                playerScore   -= validWords.get(s);
+                opponentScore -= validWords.get(s);
             }
         }
 
@@ -599,17 +633,17 @@ public class BoggleGame extends JFrame {
         if (s.equals("")) return;
 
         // search for word
-        if (validWords.contains(s) && !foundWords.contains(s)) { 
+        if (validWords.containsKey(s) && !foundWords.contains(s)) { 
             foundWords.add(s);
             foundWordsList.setListData(foundWords.toArray());
-            points += scoreWord(s);
+            points += validWords.get(s);
             scoreLabel.setText("Current Points: " + points);
             entryField.setText("");
         }
 
         // used for testing (gets 100% of all valid words)
         else if (s.equals("GODMODE")) {
-            for (String str : solver.getAllValidWords(board)) {
+            for (String str : validWords.keySet()) {
                 entryField.setText(str);
                 checkWord();
             }
@@ -617,7 +651,7 @@ public class BoggleGame extends JFrame {
 
         // used for testing (gets 25% of all valid words)
         else if (s.equals("GODMODE4")) {
-            for (String str : solver.getAllValidWords(board)) {
+            for (String str : validWords.keySet()) {
                 if (StdRandom.uniform(4) == 0) {
                     entryField.setText(str);
                     checkWord();
@@ -632,22 +666,6 @@ public class BoggleGame extends JFrame {
         }
     }
     
-    /** 
-     * Score a word based off typical Boggle scoring.
-     * @param s Word to score
-     * @return Score of the word passed in 
-     */
-    private int scoreWord(String s) {
-        int pointValue;
-        int length = s.length();
-        if      (length < 5)  pointValue = 1;
-        else if (length == 5) pointValue = 2;
-        else if (length == 6) pointValue = 3;
-        else if (length == 7) pointValue = 5;
-        else                  pointValue = 11;
-        return pointValue;
-    }
-    
     /**
      * Class that displays the board for the user to interact with.
      * @author mdrabick
@@ -657,7 +675,17 @@ public class BoggleGame extends JFrame {
         private JLabel[] cubes = new JLabel[NUM_OF_CUBES];
         private int CUBE_DIM = 60;
         private int[] path;
-        private boolean foundWord; 
+
+        // the most paths kept per typed letter when matching input that is
+        // not a valid word
+        private static final int MAX_PARTIALS = 4096;
+
+        // the tile letters typed last, with 'Q' for "Qu", per letter the
+        // partial paths that spell the letters up to it, and the first letter
+        // whose paths were cut off at MAX_PARTIALS, or -1
+        private String typed = "";
+        private final ArrayList<ArrayList<int[]>> partials = new ArrayList<ArrayList<int[]>>();
+        private int truncated = -1;
         
         /**
          * Constructor for the board which the user interacts with in order to play Boggle.
@@ -779,6 +807,9 @@ public class BoggleGame extends JFrame {
          * 
          */
         public void setBoard() {
+            typed = "";
+            partials.clear();
+            truncated = -1;
             String[] letters = new String[BOARD_ROWS * BOARD_COLS];
             for (int i = 0; i < BOARD_ROWS; i++) {
                 for (int j = 0; j < BOARD_COLS; j++) {
@@ -813,73 +844,136 @@ public class BoggleGame extends JFrame {
         }
         
         /**
-         * Highlight the correct cubes when typing.
+         * Highlight the correct cubes when typing. A valid word is highlighted
+         * along the path the solver found for it, other input along a path
+         * extended from the last keystroke's partial paths.
          * @param s String to match on the board
          */
         public void matchWord(String s) {
-            if (path != null) unhighlightCubes();
-            path = new int[NUM_OF_CUBES];
-            for (int i = 0; i < path.length; i++) {
-                path[i] = -1;
+            if (path == null) {
+                path = new int[NUM_OF_CUBES];
+                Arrays.fill(path, -1);
             }
-            foundWord = false;
-            s = s.toUpperCase();
-            for (int i = 0; i < cubes.length; i++) {
-                if (s.startsWith(cubes[i].getText().toUpperCase())) {
-                    dfs(s, 0, 0, i / BOARD_COLS, i % BOARD_COLS);
+            else {
+                unhighlightCubes();
+                for (int i = 0; i < path.length && path[i] != -1; i++) {
+                    path[i] = -1;
                 }
-                if (foundWord) break;
             }
-            if (foundWord) {
-                highlightCubes();
+            s = s.toUpperCase();
+            int[] tiles = paths.tiles(s);
+            if (tiles == null) tiles = matchPrefix(s);
+            if (tiles == null) return;
+            for (int i = 0; i < tiles.length; i++) {
+                path[i] = tiles[i];
             }
+            highlightCubes();
         }
-        
+
         /**
-         * Recursive helper method to search for a particular string on the board.
-         * @param s String that is being searched
-         * @param curChar Current char that is being sought
-         * @param pathIndex Current number of cubes searched (only differs from curChar if there is a q in string) 
-         * @param i Row of the board
-         * @param j Column of the board
+         * Find a path that spells a string, reusing the partial paths of the
+         * letters it shares with the string of the last keystroke.
+         * @param s String to match on the board
+         * @return the tiles of a path, or null if there is none
          */
-        private void dfs(String s, int curChar, int pathIndex, int i, int j) {
-            // if the word has already been found
-            // if (foundWord) return;
-            // out of bounds
-            if (i < 0 || j < 0 || i >= BOARD_ROWS || j >= BOARD_COLS) return;
-            // return if entire word is found
-            if (curChar >= s.length()) {
-                foundWord = true;
-                return;
+        private int[] matchPrefix(String s) {
+            // one letter per tile, with a 'Q' tile spelling "QU"
+            StringBuilder letters = new StringBuilder(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == 'Q') {
+                    if (i + 1 == s.length() || s.charAt(i + 1) != 'U') return null;
+                    i++;
+                }
+                letters.append(c);
+            }
+            if (letters.length() == 0) return null;
+
+            // keep the partial paths of the common prefix, extend the rest
+            int common = 0;
+            while (common < letters.length() && common < partials.size()
+                   && letters.charAt(common) == typed.charAt(common))
+                common++;
+            while (partials.size() > common)
+                partials.remove(partials.size() - 1);
+            if (truncated >= common) truncated = -1;
+            for (int k = common; k < letters.length(); k++)
+                partials.add(extend(k, letters.charAt(k)));
+            typed = letters.toString();
+
+            ArrayList<int[]> matches = partials.get(letters.length() - 1);
+            if (!matches.isEmpty()) return matches.get(0);
+            if (truncated < 0 || truncated >= letters.length()) return null;
+
+            // some paths were dropped, so search on from the last letter
+            // whose paths are all there
+            int[] tiles = new int[letters.length()];
+            for (int[] partial : partials.get(truncated - 1)) {
+                Arrays.fill(tiles, -1);
+                System.arraycopy(partial, 0, tiles, 0, truncated);
+                if (dfs(tiles, truncated, typed)) return tiles;
             }
-            // can't use a cell more than once
-            for (int n = 0; n < path.length; n++) {
-                if (path[n] == (i*BOARD_COLS)+j) return;
+            return null;
+        }
+
+        /**
+         * Complete a path whose first k tiles are set with the rest of the
+         * letters, trying every unused neighbor cube in turn.
+         */
+        private boolean dfs(int[] tiles, int k, String letters) {
+            if (k == letters.length()) return true;
+            int last = tiles[k - 1];
+            int i = last / BOARD_COLS;
+            int j = last % BOARD_COLS;
+            for (int ii = Math.max(i - 1, 0); ii <= Math.min(i + 1, BOARD_ROWS - 1); ii++) {
+                for (int jj = Math.max(j - 1, 0); jj <= Math.min(j + 1, BOARD_COLS - 1); jj++) {
+                    int t = ii * BOARD_COLS + jj;
+                    if (board.getLetter(ii, jj) != letters.charAt(k) || contains(tiles, t)) continue;
+                    tiles[k] = t;
+                    if (dfs(tiles, k + 1, letters)) return true;
+                    tiles[k] = -1;
+                }
             }
-            // ignore if character if there is a 'Q' with no 'U'
-            if (curChar != 0 && s.charAt(curChar-1) == 'Q' && s.charAt(curChar) != 'U')
-                return;
-            // increment character count if it is a 'U' after a 'Q' and keep searching 
-            if (curChar != 0 && s.charAt(curChar-1) == 'Q' && s.charAt(curChar) == 'U')
-                curChar += 1;
-            if (curChar >= s.length()) {
-                foundWord = true;
-                return;
+            return false;
+        }
+
+        /**
+         * Extend every partial path of k letters by an unused neighbor cube
+         * with the given letter.
+         */
+        private ArrayList<int[]> extend(int k, char letter) {
+            ArrayList<int[]> next = new ArrayList<int[]>();
+            if (k == 0) {
+                for (int t = 0; t < NUM_OF_CUBES; t++)
+                    if (board.getLetter(t / BOARD_COLS, t % BOARD_COLS) == letter)
+                        next.add(new int[] { t });
+                return next;
             }
-            // if it doesn't have the right character
-            if (cubes[(i*BOARD_COLS)+j].getText().charAt(0) != s.charAt(curChar)) {
-                return;
+            for (int[] partial : partials.get(k - 1)) {
+                int last = partial[k - 1];
+                int i = last / BOARD_COLS;
+                int j = last % BOARD_COLS;
+                for (int ii = Math.max(i - 1, 0); ii <= Math.min(i + 1, BOARD_ROWS - 1); ii++) {
+                    for (int jj = Math.max(j - 1, 0); jj <= Math.min(j + 1, BOARD_COLS - 1); jj++) {
+                        int t = ii * BOARD_COLS + jj;
+                        if (board.getLetter(ii, jj) != letter || contains(partial, t)) continue;
+                        if (next.size() == MAX_PARTIALS) {
+                            if (truncated < 0) truncated = k;
+                            return next;
+                        }
+                        int[] extended = Arrays.copyOf(partial, k + 1);
+                        extended[k] = t;
+                        next.add(extended);
+                    }
+                }
             }
-            // mark spot and save location;
-            path[pathIndex] = (i*BOARD_COLS)+j;
-            //visited[i][j] = true;
-            // consider all neighbors
-            for (int ii = -1; ii <= 1; ii++)
-                for (int jj = -1; jj <= 1; jj++)
-                    if (!foundWord) dfs(s, curChar+1, pathIndex+1, i + ii, j + jj);
-            
-            if (!foundWord) path[curChar] = -1;
+            return next;
+        }
+
+        private boolean contains(int[] partial, int t) {
+            for (int u : partial)
+                if (u == t) return true;
+            return false;
         }
     }
        
@@ -0,0 +1,352 @@
+/* *****************************************************************************
+ *  Name: BoggleGenerator.java
+ *  Date: 10/18/2026
+ *  Description: Rolls random Boggle boards into a packed form, fast enough
+ *               for Monte Carlo runs over millions of boards.
+ *
+ *  A packed m-by-n board is a long[] of (m * n + 11) / 12 words that holds
+ *  the letter of every tile in row-major order, five bits per tile and
+ *  twelve tiles per word, starting at the low bits. A letter is stored as
+ *  0 for 'A' through 25 for 'Z'; as on a BoggleBoard, 'Q' stands for "Qu".
+ *
+ *  A generator keeps its own SplittableRandom and dice order, so it is not
+ *  meant to be shared: give every thread a generator of its own with
+ *  split(). Boards are rolled either with one of the dice sets of
+ *  BoggleBoard, which need exactly as many tiles as there are dice, or with
+ *  the letter frequencies of English, for any size.
+ *
+ *  BoggleSolver takes packed boards directly, so a rolled board never has to
+ *  become a BoggleBoard.
+ *****************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+public class BoggleGenerator {
+
+    /**
+     * The ways to pick the letters of a board.
+     */
+    public enum Letters {
+        /** the 16 dice of the 1992 edition, for 4-by-4 boards */
+        BOGGLE_1992(BoggleBoard.BOGGLE_1992),
+        /** the 16 dice of the 1983 edition, for 4-by-4 boards */
+        BOGGLE_1983(BoggleBoard.BOGGLE_1983),
+        /** the 25 Boggle Master / Boggle Deluxe dice, for 5-by-5 boards */
+        BOGGLE_MASTER(BoggleBoard.BOGGLE_MASTER),
+        /** the 25 Big Boggle dice, for 5-by-5 boards */
+        BOGGLE_BIG(BoggleBoard.BOGGLE_BIG),
+        /** independent letters by their frequency in English, any size */
+        FREQUENCIES(null);
+
+        // the faces of every die as letter values, or null
+        private final byte[][] faces;
+
+        Letters(String[] dice) {
+            if (dice == null) {
+                faces = null;
+                return;
+            }
+            faces = new byte[dice.length][];
+            for (int d = 0; d < dice.length; d++) {
+                faces[d] = new byte[dice[d].length()];
+                for (int f = 0; f < faces[d].length; f++) {
+                    faces[d][f] = (byte) (dice[d].charAt(f) - 'A');
+                }
+            }
+        }
+    }
+
+    static final int TILE_BITS = 5;
+    static final int TILES_PER_WORD = 12;
+    static final long TILE_MASK = (1 << TILE_BITS) - 1;
+
+    // the cumulative letter frequencies, scaled to 2^31, as the last number
+    // of [0, 2^31) that falls on each letter, and per bucket of 2^21 numbers
+    // the first letter that bucket can fall on
+    private static final int[] CUMULATIVE = cumulative();
+    private static final int GUIDE_BITS = 10;
+    private static final byte[] GUIDE = guide();
+
+    private final Letters letters;
+    private final int rows;
+    private final int cols;
+    private final SplittableRandom random;
+    private final int[] order;      // the dice in the order they were last rolled
+
+    /**
+     * Initializes a generator of m-by-n boards.
+     *
+     * @param letters how to pick the letters
+     * @param rows    the number of rows
+     * @param cols    the number of columns
+     * @param seed    the seed of the random numbers
+     */
+    public BoggleGenerator(Letters letters, int rows, int cols, long seed) {
+        this(letters, rows, cols, new SplittableRandom(seed));
+    }
+
+    private BoggleGenerator(Letters letters, int rows, int cols, SplittableRandom random) {
+        if (letters == null) throw new IllegalArgumentException("letters is null");
+        if (rows <= 0) throw new IllegalArgumentException("number of rows must be a positive integer");
+        if (cols <= 0) throw new IllegalArgumentException("number of columns must be a positive integer");
+        if (letters.faces != null && letters.faces.length != rows * cols)
+            throw new IllegalArgumentException(letters + " has " + letters.faces.length + " dice, not "
+                                               + rows * cols);
+        this.letters = letters;
+        this.rows = rows;
+        this.cols = cols;
+        this.random = random;
+        this.order = letters.faces == null ? null : IntStream.range(0, letters.faces.length).toArray();
+    }
+
+    /**
+     * Returns a new generator of the same boards with a random stream of its
+     * own, for use by another thread.
+     *
+     * @return the new generator
+     */
+    public BoggleGenerator split() {
+        return new BoggleGenerator(letters, rows, cols, random.split());
+    }
+
+    /**
+     * Returns the number of rows of the boards.
+     *
+     * @return the number of rows
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * Returns the number of columns of the boards.
+     *
+     * @return the number of columns
+     */
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * Returns the number of longs that a packed m-by-n board takes.
+     *
+     * @param rows the number of rows
+     * @param cols the number of columns
+     * @return the length of the packed array
+     */
+    public static int packedLength(int rows, int cols) {
+        return (rows * cols + TILES_PER_WORD - 1) / TILES_PER_WORD;
+    }
+
+    /**
+     * Rolls a new packed board.
+     *
+     * @return the packed board
+     */
+    public long[] next() {
+        long[] packed = new long[packedLength(rows, cols)];
+        next(packed);
+        return packed;
+    }
+
+    /**
+     * Rolls a new board into the given array, overwriting it.
+     *
+     * @param packed the array to hold the packed board
+     */
+    public void next(long[] packed) {
+        if (packed.length < packedLength(rows, cols))
+            throw new IllegalArgumentException("packed array is too short for a " + rows + "-by-" + cols + " board");
+        int tiles = rows * cols;
+        byte[][] faces = letters.faces;
+        if (faces != null) {
+            for (int i = tiles - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+        }
+        long word = 0;
+        int w = 0;
+        int shift = 0;
+        for (int tile = 0; tile < tiles; tile++) {
+            long letter;
+            if (faces != null) {
+                byte[] die = faces[order[tile]];
+                letter = die[random.nextInt(die.length)];
+            }
+            else {
+                letter = frequent(random.nextInt() >>> 1);
+            }
+            word |= letter << shift;
+            shift += TILE_BITS;
+            if (shift == TILE_BITS * TILES_PER_WORD) {
+                packed[w++] = word;
+                word = 0;
+                shift = 0;
+            }
+        }
+        if (shift > 0) packed[w] = word;
+    }
+
+    /**
+     * Returns the letter of the given tile of a packed board.
+     *
+     * @param packed the packed board
+     * @param tile   the tile, in row-major order
+     * @return the letter, with 'Q' for "Qu"
+     */
+    public static char letter(long[] packed, int tile) {
+        int value = value(packed, tile);
+        if (value >= BoggleBoard.ALPHABET.length())
+            throw new IllegalArgumentException("invalid letter value " + value + " at tile " + tile);
+        return (char) ('A' + value);
+    }
+
+    /**
+     * Returns the letter value of the given tile of a packed board, unchecked.
+     */
+    static int value(long[] packed, int tile) {
+        return (int) (packed[tile / TILES_PER_WORD] >>> (TILE_BITS * (tile % TILES_PER_WORD)) & TILE_MASK);
+    }
+
+    /**
+     * Sets the letter value of the given tile of a packed board in place.
+     */
+    static void setValue(long[] packed, int tile, int value) {
+        int shift = TILE_BITS * (tile % TILES_PER_WORD);
+        int w = tile / TILES_PER_WORD;
+        packed[w] = packed[w] & ~(TILE_MASK << shift) | (long) value << shift;
+    }
+
+    /**
+     * Returns a packed board as a BoggleBoard.
+     *
+     * @param rows   the number of rows
+     * @param cols   the number of columns
+     * @param packed the packed board
+     * @return the board
+     */
+    public static BoggleBoard toBoard(int rows, int cols, long[] packed) {
+        char[][] a = new char[rows][cols];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                a[i][j] = letter(packed, i * cols + j);
+            }
+        }
+        return new BoggleBoard(a);
+    }
+
+    /**
+     * Returns the given board in packed form.
+     *
+     * @param board a Boggle board
+     * @return the packed board
+     */
+    public static long[] pack(BoggleBoard board) {
+        int cols = board.cols();
+        long[] packed = new long[packedLength(board.rows(), cols)];
+        for (int i = 0; i < board.rows(); i++) {
+            for (int j = 0; j < cols; j++) {
+                int tile = i * cols + j;
+                long letter = board.getLetter(i, j) - 'A';
+                packed[tile / TILES_PER_WORD] |= letter << (TILE_BITS * (tile % TILES_PER_WORD));
+            }
+        }
+        return packed;
+    }
+
+    private static int[] cumulative() {
+        double[] frequencies = BoggleBoard.FREQUENCIES;
+        double total = 0;
+        for (double f : frequencies) total += f;
+        int[] cumulative = new int[frequencies.length];
+        double sum = 0;
+        for (int k = 0; k < frequencies.length; k++) {
+            sum += frequencies[k];
+            cumulative[k] = (int) (Math.min(1L << 31, Math.round(sum / total * (1L << 31))) - 1);
+        }
+        cumulative[frequencies.length - 1] = Integer.MAX_VALUE;
+        return cumulative;
+    }
+
+    private static byte[] guide() {
+        byte[] guide = new byte[1 << GUIDE_BITS];
+        int k = 0;
+        for (int bucket = 0; bucket < guide.length; bucket++) {
+            int first = bucket << (31 - GUIDE_BITS);
+            while (first > CUMULATIVE[k]) k++;
+            guide[bucket] = (byte) k;
+        }
+        return guide;
+    }
+
+    /**
+     * Returns the letter value that a uniform number in [0, 2^31) falls on.
+     * The guide table leaves at most a step or two of linear search, which
+     * always stops at the last letter since its bound is Integer.MAX_VALUE.
+     */
+    private static int frequent(int x) {
+        int k = GUIDE[x >>> (31 - GUIDE_BITS)];
+        while (x > CUMULATIVE[k]) k++;
+        return k;
+    }
+
+    /**
+     * Reports how many boards per second every kind of letters rolls, on one
+     * thread and on all of them. With a dictionary as the argument, also
+     * reports how many packed 4-by-4 boards per second the solver scores.
+     */
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        StdOut.printf("%-14s %6s %16s %16s%n", "letters", "size", "boards/s", "on " + threads + " threads");
+        for (Letters letters : Letters.values()) {
+            int size = letters.faces == null || letters.faces.length == 16 ? 4 : 5;
+            BoggleGenerator generator = new BoggleGenerator(letters, size, size, 2026);
+            double single = rate(generator, 1);
+            double all = rate(generator, threads);
+            StdOut.printf("%-14s %6s %16.0f %16.0f%n", letters, size + "x" + size, single, all);
+        }
+        if (args.length == 0) return;
+
+        BoggleSolver solver = new BoggleSolver(BoggleDictionary.read(args[0]));
+        BoggleGenerator generator = new BoggleGenerator(Letters.BOGGLE_1992, 4, 4, 2026);
+        long[] packed = new long[packedLength(4, 4)];
+        long points = 0;
+        int boards = 0;
+        long start = System.nanoTime();
+        do {
+            generator.next(packed);
+            points += solver.totalScore(4, 4, packed);
+            boards++;
+        } while (System.nanoTime() - start < 2e9);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        StdOut.printf("scored %d packed boards, %.1f points on average, %.0f boards/s%n", boards,
+                      (double) points / boards, boards / seconds);
+    }
+
+    private static double rate(BoggleGenerator generator, int threads) {
+        long perThread = 2000000;
+        BoggleGenerator[] generators = new BoggleGenerator[threads];
+        for (int t = 0; t < threads; t++) {
+            generators[t] = generator.split();
+        }
+        long start = System.nanoTime();
+        long checksum = IntStream.range(0, threads).parallel().mapToLong(t -> {
+            long[] packed = new long[packedLength(generator.rows, generator.cols)];
+            long sum = 0;
+            for (long k = 0; k < perThread; k++) {
+                generators[t].next(packed);
+                sum += packed[0];
+            }
+            return sum;
+        }).sum();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (checksum == 42) StdOut.println();   // keeps the boards from being optimized away
+        return threads * perThread / seconds;
+    }
+}
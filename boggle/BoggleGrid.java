@@ -0,0 +1,82 @@
+/* *****************************************************************************
+ *  Name: BoggleGrid.java
+ *  Date: 10/18/2026
+ *  Description: The adjacency of the tiles of an m-by-n Boggle board. It
+ *               depends only on the dimensions, so one immutable grid per
+ *               size is cached and shared by all searches and threads.
+ *
+ *  A grid takes about 36 bytes per tile, so only grids of up to
+ *  MAX_CACHED_TILES tiles are cached, and at most MAX_CACHED of them, which
+ *  bounds the cache at under 10 MB. The grid of a bigger board is built by
+ *  the search that needs it and kept only while that search goes on with
+ *  boards of the same size.
+ *
+ *  The neighbor lists are stored in compressed sparse row form: the
+ *  neighbors of tile t are neighbors[offsets[t]] through
+ *  neighbors[offsets[t + 1] - 1], in row-major order.
+ *****************************************************************************/
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class BoggleGrid {
+
+    private static final int MAX_CACHED_TILES = 4096;
+    private static final int MAX_CACHED = 64;
+    private static final ConcurrentHashMap<Long, BoggleGrid> CACHE = new ConcurrentHashMap<>();
+
+    final int rows;
+    final int cols;
+    final int[] offsets;
+    final int[] neighbors;
+
+    private BoggleGrid(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        int tiles = rows * cols;
+        offsets = new int[tiles + 1];
+        int[] list = new int[8 * tiles];
+        int n = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                offsets[i * cols + j] = n;
+                for (int di = -1; di <= 1; di++) {
+                    for (int dj = -1; dj <= 1; dj++) {
+                        if (di == 0 && dj == 0) continue;
+                        int row = i + di;
+                        int col = j + dj;
+                        if (row < 0 || row >= rows || col < 0 || col >= cols) continue;
+                        list[n++] = row * cols + col;
+                    }
+                }
+            }
+        }
+        offsets[tiles] = n;
+        neighbors = Arrays.copyOf(list, n);
+    }
+
+    /**
+     * Returns the grid of an m-by-n board, computing it on first use. A
+     * grid too big to cache, or one past a full cache, is computed anew.
+     *
+     * @param rows the number of rows
+     * @param cols the number of columns
+     * @return the grid for boards of that size
+     */
+    static BoggleGrid of(int rows, int cols) {
+        if (rows <= 0) throw new IllegalArgumentException("number of rows must be a positive integer");
+        if (cols <= 0) throw new IllegalArgumentException("number of columns must be a positive integer");
+        if ((long) rows * cols > MAX_CACHED_TILES) return new BoggleGrid(rows, cols);
+        Long key = ((long) rows << 32) | cols;
+        BoggleGrid grid = CACHE.get(key);
+        if (grid == null) {
+            if (CACHE.size() >= MAX_CACHED) return new BoggleGrid(rows, cols);
+            grid = CACHE.computeIfAbsent(key, k -> new BoggleGrid(rows, cols));
+        }
+        return grid;
+    }
+
+    int tiles() {
+        return rows * cols;
+    }
+}
@@ -0,0 +1,469 @@
+/* *****************************************************************************
+ *  Name: BoggleMonteCarlo.java
+ *  Date: 10/18/2026
+ *  Description: Samples the score and word distributions of random Boggle
+ *               boards, say to calibrate the opponent levels of BoggleGame
+ *               for a dice set and a dictionary.
+ *
+ *  Every thread rolls packed boards with a BoggleGenerator of its own,
+ *  solves them in place and adds them to a Tally of its own: histograms of
+ *  the total score, the number of words and the length of the longest word,
+ *  and per word id the number of boards that have the word. When all
+ *  threads are done, their tallies are merged. Tallies only hold counts, so
+ *  memory stays the same however many boards are sampled, and the threads
+ *  share nothing but the read-only dictionary.
+ *
+ *  A tally can be written as CSV, with one line of kind,key,count per
+ *  histogram bin and per word found, or as a compact binary file that can
+ *  be read back and merged with the tallies of other runs:
+ *
+ *      int     magic, version
+ *      long    number of boards
+ *      int     dictionary size
+ *      3 x     int number of bins, long count per bin (score, words, longest)
+ *      int     number of words found
+ *      n x     int word id, long count
+ *
+ *  all big-endian, as written by DataOutputStream.
+ *
+ *  % java BoggleMonteCarlo dictionary-yawl.txt BOGGLE_1992 4 4 1000000
+ *  % java BoggleMonteCarlo dictionary-yawl.txt FREQUENCIES 5 5 100000 4 yawl-5x5.csv
+ *****************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+
+public class BoggleMonteCarlo {
+
+    private static final int MAGIC = 0x42474d43;     // "BGMC"
+    private static final int VERSION = 1;
+
+    private final BoggleSolver solver;
+    private final int size;
+    private final BoggleGenerator.Letters letters;
+    private final int rows;
+    private final int cols;
+
+    /**
+     * A histogram of non-negative integer values.
+     */
+    public static final class Histogram {
+        private long[] counts = new long[16];
+        private int bins;           // one past the largest value seen
+        private long total;
+        private long sum;
+
+        /**
+         * Counts one occurrence of the value.
+         *
+         * @param value a non-negative integer
+         */
+        public void add(int value) {
+            add(value, 1);
+        }
+
+        private void add(int value, long count) {
+            if (value < 0) throw new IllegalArgumentException("value is negative");
+            if (value >= counts.length) counts = Arrays.copyOf(counts, Math.max(value + 1, 2 * counts.length));
+            if (value >= bins) bins = value + 1;
+            counts[value] += count;
+            total += count;
+            sum += count * value;
+        }
+
+        /**
+         * Adds the counts of the other histogram to this one.
+         *
+         * @param other a histogram
+         */
+        public void merge(Histogram other) {
+            for (int value = 0; value < other.bins; value++) {
+                if (other.counts[value] > 0) add(value, other.counts[value]);
+            }
+        }
+
+        /**
+         * Returns the number of occurrences of the value.
+         *
+         * @param value a non-negative integer
+         * @return the count of the value
+         */
+        public long count(int value) {
+            return value < bins ? counts[value] : 0;
+        }
+
+        /**
+         * Returns the number of values counted.
+         *
+         * @return the total count
+         */
+        public long total() {
+            return total;
+        }
+
+        /**
+         * Returns the mean of the values counted.
+         *
+         * @return the mean, or NaN if there are none
+         */
+        public double mean() {
+            return (double) sum / total;
+        }
+
+        /**
+         * Returns the largest value counted.
+         *
+         * @return the largest value, or -1 if there are none
+         */
+        public int max() {
+            return bins - 1;
+        }
+
+        /**
+         * Returns the smallest value that at least the given fraction of the
+         * values do not exceed.
+         *
+         * @param p a fraction between 0 and 1
+         * @return the p-quantile, or -1 if there are no values
+         */
+        public int quantile(double p) {
+            if (p < 0 || p > 1) throw new IllegalArgumentException("fraction must be between 0 and 1");
+            long rank = (long) Math.ceil(p * total);
+            long seen = 0;
+            for (int value = 0; value < bins; value++) {
+                seen += counts[value];
+                if (seen >= rank && seen > 0) return value;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * The statistics of a number of boards.
+     */
+    public static final class Tally {
+        private long boards;
+        private final Histogram scores = new Histogram();
+        private final Histogram words = new Histogram();
+        private final Histogram longest = new Histogram();
+        private final long[] frequency;
+
+        Tally(int size) {
+            this.frequency = new long[size];
+        }
+
+        /**
+         * Adds the counts of the other tally, which must be over the same
+         * dictionary, to this one.
+         *
+         * @param other a tally
+         */
+        public void merge(Tally other) {
+            if (other.frequency.length != frequency.length)
+                throw new IllegalArgumentException("tallies are over dictionaries of different sizes");
+            boards += other.boards;
+            scores.merge(other.scores);
+            words.merge(other.words);
+            longest.merge(other.longest);
+            for (int id = 0; id < frequency.length; id++) {
+                frequency[id] += other.frequency[id];
+            }
+        }
+
+        /**
+         * Returns the number of boards.
+         *
+         * @return the number of boards
+         */
+        public long boards() {
+            return boards;
+        }
+
+        /**
+         * Returns the histogram of the total scores of the boards.
+         *
+         * @return the score histogram
+         */
+        public Histogram scores() {
+            return scores;
+        }
+
+        /**
+         * Returns the histogram of the number of valid words of the boards.
+         *
+         * @return the word count histogram
+         */
+        public Histogram words() {
+            return words;
+        }
+
+        /**
+         * Returns the histogram of the length of the longest valid word of
+         * the boards, with 0 for boards without any.
+         *
+         * @return the longest word histogram
+         */
+        public Histogram longest() {
+            return longest;
+        }
+
+        /**
+         * Returns the number of boards on which the word is valid.
+         *
+         * @param id a word id
+         * @return the number of boards with the word
+         */
+        public long frequency(int id) {
+            return frequency[id];
+        }
+    }
+
+    /**
+     * Initializes a sampler of m-by-n boards with the given letters, solved
+     * with the given dictionary.
+     *
+     * @param dictionary the dictionary
+     * @param letters    how to pick the letters of the boards
+     * @param rows       the number of rows
+     * @param cols       the number of columns
+     */
+    public BoggleMonteCarlo(BoggleDictionary dictionary, BoggleGenerator.Letters letters, int rows, int cols) {
+        if (dictionary == null) throw new IllegalArgumentException("dictionary is null");
+        new BoggleGenerator(letters, rows, cols, 0);    // checks the letters and dimensions
+        this.solver = new BoggleSolver(dictionary);
+        this.size = dictionary.size();
+        this.letters = letters;
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    /**
+     * Rolls and solves the given number of boards on the given number of
+     * threads, and returns the merged tally.
+     *
+     * @param boards  the number of boards
+     * @param threads the number of threads
+     * @param seed    the seed of the random boards
+     * @return the tally of the boards
+     */
+    public Tally run(long boards, int threads, long seed) {
+        if (boards < 0) throw new IllegalArgumentException("number of boards is negative");
+        if (threads <= 0) throw new IllegalArgumentException("number of threads must be a positive integer");
+        BoggleGenerator generator = new BoggleGenerator(letters, rows, cols, seed);
+        List<Callable<Tally>> parts = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long share = boards / threads + (t < boards % threads ? 1 : 0);
+            BoggleGenerator own = generator.split();
+            parts.add(() -> sample(own, share));
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Tally tally = new Tally(size);
+        try {
+            for (Future<Tally> part : pool.invokeAll(parts)) {
+                tally.merge(part.get());
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+        finally {
+            pool.shutdownNow();
+        }
+        return tally;
+    }
+
+    private Tally sample(BoggleGenerator generator, long boards) {
+        Tally tally = new Tally(size);
+        long[] packed = new long[BoggleGenerator.packedLength(rows, cols)];
+        int[] board = new int[3];   // score, words and longest word of the board
+        IntConsumer count = id -> {
+            board[0] += solver.scoreOf(id);
+            board[1]++;
+            board[2] = Math.max(board[2], solver.lengthOf(id));
+            tally.frequency[id]++;
+        };
+        for (long k = 0; k < boards; k++) {
+            generator.next(packed);
+            Arrays.fill(board, 0);
+            solver.forEachValidWordId(rows, cols, packed, count);
+            tally.scores.add(board[0]);
+            tally.words.add(board[1]);
+            tally.longest.add(board[2]);
+        }
+        tally.boards = boards;
+        return tally;
+    }
+
+    /**
+     * Writes the tally as CSV, one line of kind,key,count per histogram bin
+     * (with kind score, words or longest) and per word found (with kind word
+     * and the word as its key).
+     *
+     * @param tally    a tally of this sampler
+     * @param filename the name of the file
+     */
+    public void writeCsv(Tally tally, String filename) {
+        try (PrintWriter out = new PrintWriter(filename, "US-ASCII")) {
+            out.println("kind,key,count");
+            out.println("boards,," + tally.boards);
+            writeCsv(out, "score", tally.scores);
+            writeCsv(out, "words", tally.words);
+            writeCsv(out, "longest", tally.longest);
+            for (int id = 0; id < tally.frequency.length; id++) {
+                if (tally.frequency[id] > 0) out.println("word," + solver.wordOf(id) + "," + tally.frequency[id]);
+            }
+            if (out.checkError()) throw new IOException("could not write " + filename);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    private static void writeCsv(PrintWriter out, String kind, Histogram histogram) {
+        for (int value = 0; value < histogram.bins; value++) {
+            if (histogram.counts[value] > 0) out.println(kind + "," + value + "," + histogram.counts[value]);
+        }
+    }
+
+    /**
+     * Writes the tally in the compact binary format.
+     *
+     * @param tally    a tally
+     * @param filename the name of the file
+     */
+    public static void writeBinary(Tally tally, String filename) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(tally.boards);
+            out.writeInt(tally.frequency.length);
+            for (Histogram histogram : new Histogram[] { tally.scores, tally.words, tally.longest }) {
+                out.writeInt(histogram.bins);
+                for (int value = 0; value < histogram.bins; value++) {
+                    out.writeLong(histogram.counts[value]);
+                }
+            }
+            int found = 0;
+            for (long f : tally.frequency) {
+                if (f > 0) found++;
+            }
+            out.writeInt(found);
+            for (int id = 0; id < tally.frequency.length; id++) {
+                if (tally.frequency[id] == 0) continue;
+                out.writeInt(id);
+                out.writeLong(tally.frequency[id]);
+            }
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not write " + filename, e);
+        }
+    }
+
+    /**
+     * Reads a tally written by {@link #writeBinary}.
+     *
+     * @param filename the name of the file
+     * @return the tally
+     */
+    public static Tally readBinary(String filename) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
+            if (in.readInt() != MAGIC) throw new IllegalArgumentException(filename + " is not a tally file");
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IllegalArgumentException(filename + " has version " + version + ", not " + VERSION);
+            long boards = in.readLong();
+            Tally tally = new Tally(in.readInt());
+            tally.boards = boards;
+            for (Histogram histogram : new Histogram[] { tally.scores, tally.words, tally.longest }) {
+                int bins = in.readInt();
+                for (int value = 0; value < bins; value++) {
+                    long count = in.readLong();
+                    if (count > 0) histogram.add(value, count);
+                }
+            }
+            int found = in.readInt();
+            for (int k = 0; k < found; k++) {
+                int id = in.readInt();
+                tally.frequency[id] = in.readLong();
+            }
+            return tally;
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("could not read " + filename, e);
+        }
+    }
+
+    /**
+     * Samples random boards with the given dictionary, letters (a dice set
+     * or FREQUENCIES), size and number of boards, and optionally number of
+     * threads and output file, ending in .csv or anything else for binary.
+     * Prints the rate, a summary of the histograms and the most frequent
+     * words.
+     */
+    public static void main(String[] args) {
+        BoggleDictionary dictionary = BoggleDictionary.read(args[0]);
+        BoggleGenerator.Letters letters = BoggleGenerator.Letters.valueOf(args[1]);
+        int rows = Integer.parseInt(args[2]);
+        int cols = Integer.parseInt(args[3]);
+        long boards = Long.parseLong(args[4]);
+        int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+
+        BoggleMonteCarlo sampler = new BoggleMonteCarlo(dictionary, letters, rows, cols);
+        long start = System.nanoTime();
+        Tally tally = sampler.run(boards, threads, System.nanoTime());
+        double seconds = (System.nanoTime() - start) / 1e9;
+        StdOut.printf("%d boards in %.1f s, %.0f boards/s on %d threads%n", boards, seconds, boards / seconds,
+                      threads);
+        StdOut.printf("%-8s %8s %6s %6s %6s %6s %6s%n", "", "mean", "p10", "p50", "p90", "p99", "max");
+        summarize("score", tally.scores());
+        summarize("words", tally.words());
+        summarize("longest", tally.longest());
+
+        PriorityQueue<Integer> top = new PriorityQueue<>((a, b) -> Long.compare(tally.frequency[a],
+                                                                               tally.frequency[b]));
+        for (int id = 0; id < tally.frequency.length; id++) {
+            if (tally.frequency[id] == 0) continue;
+            top.add(id);
+            if (top.size() > 10) top.remove();
+        }
+        List<Integer> ids = new ArrayList<>(top);
+        ids.sort((a, b) -> Long.compare(tally.frequency[b], tally.frequency[a]));
+        StdOut.print("most frequent:");
+        for (int id : ids) {
+            StdOut.printf(" %s %.1f%%", sampler.solver.wordOf(id), 100.0 * tally.frequency[id] / boards);
+        }
+        StdOut.println();
+
+        if (args.length > 6) {
+            if (args[6].endsWith(".csv")) sampler.writeCsv(tally, args[6]);
+            else writeBinary(tally, args[6]);
+        }
+    }
+
+    private static void summarize(String name, Histogram histogram) {
+        StdOut.printf("%-8s %8.2f %6d %6d %6d %6d %6d%n", name, histogram.mean(), histogram.quantile(0.1),
+                      histogram.quantile(0.5), histogram.quantile(0.9), histogram.quantile(0.99), histogram.max());
+    }
+}
@@ -0,0 +1,241 @@
+/* *****************************************************************************
+ *  Name: BoggleOptimizer.java
+ *  Date: 10/18/2026
+ *  Description: Searches for high-scoring m-by-n Boggle boards by simulated
+ *               annealing over the letters of the tiles.
+ *
+ *  Every chain starts from a random board and proposes one move at a time:
+ *  either a tile gets a new letter or two tiles swap letters. A move that
+ *  does not lower the score is always taken; one that does is taken with
+ *  probability exp(delta / T), where the temperature T cools geometrically
+ *  from START_TEMPERATURE to END_TEMPERATURE over the run.
+ *
+ *  The chains are independent and run on threads of their own, sharing one
+ *  solver. A chain keeps its board packed as by BoggleGenerator, changes
+ *  the tiles of a move in place and scores it with the packed
+ *  BoggleSolver.totalScore, which builds neither a BoggleBoard nor any word
+ *  strings, so the loop is bound by the search itself. Only a new best
+ *  board is copied.
+ *****************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+public class BoggleOptimizer {
+
+    private static final int LETTERS = BoggleBoard.ALPHABET.length();
+    private static final double START_TEMPERATURE = 50.0;
+    private static final double END_TEMPERATURE = 0.5;
+
+    private final BoggleSolver solver;
+    private final int rows;
+    private final int cols;
+    private final LongAdder evaluations = new LongAdder();
+
+    private long[] best;            // packed
+    private volatile int bestScore = -1;
+    private long start;
+
+    /**
+     * Initializes an optimizer for m-by-n boards.
+     *
+     * @param solver the solver that scores the boards
+     * @param rows   the number of rows
+     * @param cols   the number of columns
+     */
+    public BoggleOptimizer(BoggleSolver solver, int rows, int cols) {
+        if (solver == null) throw new IllegalArgumentException("solver is null");
+        if (rows <= 0) throw new IllegalArgumentException("number of rows must be a positive integer");
+        if (cols <= 0) throw new IllegalArgumentException("number of columns must be a positive integer");
+        this.solver = solver;
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    /**
+     * Runs the given number of independent chains for the given time and
+     * returns the best board found.
+     *
+     * @param chains  the number of chains, each on a thread of its own
+     * @param seconds how long to run
+     * @param seed    the seed of the random moves
+     * @return the best board found
+     */
+    public BoggleBoard optimize(int chains, double seconds, long seed) {
+        return optimize(chains, seconds, seed, 0, null);
+    }
+
+    /**
+     * Runs the given number of independent chains for the given time and
+     * returns the best board found. Every period seconds, and once at the end,
+     * the calling thread passes this optimizer to the listener, which can
+     * report the best score and the evaluation rate so far.
+     *
+     * @param chains   the number of chains, each on a thread of its own
+     * @param seconds  how long to run
+     * @param seed     the seed of the random moves
+     * @param period   the seconds between calls of the listener
+     * @param listener receives this optimizer, or null
+     * @return the best board found
+     */
+    public BoggleBoard optimize(int chains, double seconds, long seed, double period,
+                                Consumer<BoggleOptimizer> listener) {
+        if (chains <= 0) throw new IllegalArgumentException("number of chains must be a positive integer");
+        if (seconds < 0) throw new IllegalArgumentException("seconds is negative");
+        if (listener != null && period <= 0) throw new IllegalArgumentException("period must be positive");
+        synchronized (this) {
+            best = null;
+            bestScore = -1;
+            evaluations.reset();
+            start = System.nanoTime();
+        }
+        long deadline = start + (long) (seconds * 1e9);
+        SplittableRandom random = new SplittableRandom(seed);
+        ExecutorService threads = Executors.newFixedThreadPool(chains);
+        for (int c = 0; c < chains; c++) {
+            SplittableRandom chain = random.split();
+            threads.execute(() -> anneal(chain, deadline));
+        }
+        threads.shutdown();
+        try {
+            if (listener == null) {
+                threads.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+            else {
+                long step = (long) (period * 1e9);
+                while (!threads.awaitTermination(step, TimeUnit.NANOSECONDS)) {
+                    listener.accept(this);
+                }
+                listener.accept(this);
+            }
+        }
+        catch (InterruptedException e) {
+            threads.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        return bestBoard();
+    }
+
+    /**
+     * Returns the best board found so far.
+     *
+     * @return the best board, or null before the first evaluation
+     */
+    public synchronized BoggleBoard bestBoard() {
+        return best == null ? null : BoggleGenerator.toBoard(rows, cols, best);
+    }
+
+    /**
+     * Returns the score of the best board found so far.
+     *
+     * @return the best score, or -1 before the first evaluation
+     */
+    public synchronized int bestScore() {
+        return bestScore;
+    }
+
+    /**
+     * Returns the number of boards scored so far by all chains.
+     *
+     * @return the number of evaluations
+     */
+    public long evaluations() {
+        return evaluations.sum();
+    }
+
+    /**
+     * Returns the seconds since the current or last run started.
+     *
+     * @return the elapsed seconds
+     */
+    public synchronized double elapsed() {
+        return (System.nanoTime() - start) / 1e9;
+    }
+
+    private void anneal(SplittableRandom random, long deadline) {
+        int tileCount = rows * cols;
+        long[] tiles = new long[BoggleGenerator.packedLength(rows, cols)];
+        for (int tile = 0; tile < tileCount; tile++) {
+            BoggleGenerator.setValue(tiles, tile, random.nextInt(LETTERS));
+        }
+        int score = evaluate(tiles);
+        long begin = System.nanoTime();
+        double span = deadline - begin;
+        double cooling = Math.log(END_TEMPERATURE / START_TEMPERATURE);
+        for (long now = begin; now < deadline; now = System.nanoTime()) {
+            double temperature = START_TEMPERATURE * Math.exp(cooling * (now - begin) / span);
+
+            // propose a move, remembering how to undo it
+            int a = random.nextInt(tileCount);
+            int b = a;
+            int old = BoggleGenerator.value(tiles, a);
+            if (tileCount > 1 && random.nextBoolean()) {
+                while (b == a) b = random.nextInt(tileCount);
+                swap(tiles, a, b);
+            }
+            else {
+                BoggleGenerator.setValue(tiles, a, random.nextInt(LETTERS));
+            }
+
+            int next = evaluate(tiles);
+            int delta = next - score;
+            if (delta >= 0 || random.nextDouble() < Math.exp(delta / temperature)) {
+                score = next;
+            }
+            else if (b != a) {
+                swap(tiles, a, b);
+            }
+            else {
+                BoggleGenerator.setValue(tiles, a, old);
+            }
+        }
+    }
+
+    private static void swap(long[] tiles, int a, int b) {
+        int value = BoggleGenerator.value(tiles, a);
+        BoggleGenerator.setValue(tiles, a, BoggleGenerator.value(tiles, b));
+        BoggleGenerator.setValue(tiles, b, value);
+    }
+
+    private int evaluate(long[] tiles) {
+        int score = solver.totalScore(rows, cols, tiles);
+        evaluations.increment();
+        if (score > bestScore) offer(tiles, score);
+        return score;
+    }
+
+    private synchronized void offer(long[] tiles, int score) {
+        if (score > bestScore) {
+            best = tiles.clone();
+            bestScore = score;
+        }
+    }
+
+    /**
+     * Searches for a high-scoring board with the given dictionary, size, run
+     * time in seconds and optionally number of chains, printing the best
+     * score and the evaluation rate every second, then the best board.
+     */
+    public static void main(String[] args) {
+        BoggleSolver solver = new BoggleSolver(BoggleDictionary.read(args[0]));
+        int rows = Integer.parseInt(args[1]);
+        int cols = Integer.parseInt(args[2]);
+        double seconds = Double.parseDouble(args[3]);
+        int chains = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+
+        BoggleOptimizer optimizer = new BoggleOptimizer(solver, rows, cols);
+        StdOut.printf("%8s %8s %12s%n", "seconds", "best", "evals/s");
+        BoggleBoard board = optimizer.optimize(chains, seconds, System.nanoTime(), 1.0, o -> {
+            double elapsed = o.elapsed();
+            StdOut.printf("%8.1f %8d %12.0f%n", elapsed, o.bestScore(), o.evaluations() / elapsed);
+        });
+        StdOut.println(board);
+        StdOut.println("Score = " + optimizer.bestScore());
+    }
+}
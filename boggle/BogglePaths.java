@@ -0,0 +1,112 @@
+/* *****************************************************************************
+ *  Name: BogglePaths.java
+ *  Date: 10/18/2026
+ *  Description: The valid words of a Boggle board, each with one path of
+ *               tiles that spells it, as returned by
+ *               BoggleSolver.getAllValidPaths.
+ *
+ *  A path is stored as its starting tile and one byte per further step. A
+ *  step to the tile dr rows and dc columns away is stored as
+ *  3 * (dr + 1) + (dc + 1), so a word of n tiles takes n + 3 bytes besides
+ *  its String. The tiles of a word are decoded in time linear in its length.
+ *****************************************************************************/
+
+import java.util.HashMap;
+
+public class BogglePaths {
+
+    private final int cols;
+    private final String[] words;
+    private final int[] ids;
+    private final int[] starts;     // the first tile of every path
+    private final int[] offsets;    // the steps of path k are offsets[k] to offsets[k + 1] - 1
+    private final byte[] steps;
+    private final HashMap<String, Integer> index;
+
+    BogglePaths(int cols, String[] words, int[] ids, int[] starts, int[] offsets, byte[] steps) {
+        this.cols = cols;
+        this.words = words;
+        this.ids = ids;
+        this.starts = starts;
+        this.offsets = offsets;
+        this.steps = steps;
+        this.index = new HashMap<>(2 * words.length);
+        for (int k = 0; k < words.length; k++) {
+            index.put(words[k], k);
+        }
+    }
+
+    /**
+     * Returns the number of valid words.
+     *
+     * @return the number of words
+     */
+    public int size() {
+        return words.length;
+    }
+
+    /**
+     * Returns the kth valid word.
+     *
+     * @param k the index of the word
+     * @return the word
+     */
+    public String word(int k) {
+        return words[k];
+    }
+
+    /**
+     * Returns the dictionary id of the kth valid word.
+     *
+     * @param k the index of the word
+     * @return the word id
+     */
+    public int id(int k) {
+        return ids[k];
+    }
+
+    /**
+     * Returns the index of the given word, or -1 if it is not a valid word of
+     * the board.
+     *
+     * @param word the word
+     * @return the index of the word, or -1
+     */
+    public int indexOf(String word) {
+        Integer k = index.get(word);
+        return k == null ? -1 : k;
+    }
+
+    /**
+     * Returns the tiles of the path of the kth valid word, in row-major order.
+     * A "Qu" tile spells two letters, so there may be fewer tiles than letters.
+     *
+     * @param k the index of the word
+     * @return the tiles of the path
+     */
+    public int[] tiles(int k) {
+        int from = offsets[k];
+        int to = offsets[k + 1];
+        int[] tiles = new int[to - from + 1];
+        int tile = starts[k];
+        tiles[0] = tile;
+        for (int i = from; i < to; i++) {
+            int step = steps[i];
+            tile += (step / 3 - 1) * cols + step % 3 - 1;
+            tiles[i - from + 1] = tile;
+        }
+        return tiles;
+    }
+
+    /**
+     * Returns the tiles of the path of the given word, or null if it is not a
+     * valid word of the board.
+     *
+     * @param word the word
+     * @return the tiles of the path, or null
+     */
+    public int[] tiles(String word) {
+        int k = indexOf(word);
+        return k < 0 ? null : tiles(k);
+    }
+}
@@ -0,0 +1,530 @@
+/* *****************************************************************************
+ *  Name: BoggleSearch.java
+ *  Date: 10/18/2026
+ *  Description: The scratch state for searching Boggle boards against a
+ *               dictionary. The dictionary is only read, so any number of
+ *               searches can share it from different threads; a search
+ *               itself is used by one thread at a time and is reset at the
+ *               start of every board.
+ *
+ *  All scratch state lives in primitive arrays that only grow, so once a
+ *  search has seen a board of the largest size it allocates nothing but the
+ *  words it returns:
+ *
+ *      symbols    the dictionary symbol of every tile
+ *      nearby     per tile, the set of symbols on its neighbor tiles
+ *      visited    a bitset of the tiles on the current path
+ *      path       the letters of the current path
+ *      tileAt     the tile of every letter on the path that starts a tile
+ *      found      per word id, the search that last reported the word
+ *
+ *  The neighbor lists themselves come from the BoggleGrid of the board's
+ *  dimensions, shared unless the board is huge, so only the letters are
+ *  copied in for each board.
+ *  They can come from a BoggleBoard or straight from a board packed by
+ *  BoggleGenerator, five bits per tile.
+ *
+ *  If the dictionary carries prefilter data, a pre-pass also records which
+ *  symbols are on the board, once and twice, and the exact set of symbol
+ *  pairs (bigrams) on adjacent tiles. A record whose remaining words need a
+ *  symbol (or a symbol twice, or a bigram) that the board does not have is
+ *  not searched below. The check costs a few reads per record, and the trie
+ *  and the neighbor masks already cut most of what it would: on random
+ *  boards from 2-by-2 to 20-by-20, and on boards of only a few letters, it
+ *  pruned 0-5% of the records and made the search 8-36% slower. So the
+ *  prefilter is only used on boards with at most SPARSE_BIGRAMS distinct
+ *  bigrams, and ordinary boards are searched as if there were no filters.
+ *
+ *  Words are handed to a Sink as they are found. A sink can stop the search,
+ *  and it can raise the minimum word length at any time; the search then
+ *  skips every record whose longest word would still be too short. A sink
+ *  can also carry a cancel flag that any thread may set; the search looks
+ *  at it on every step, so it stops within one record even while no words
+ *  turn up.
+ *
+ *  A counting search also counts the records it visits, the neighbor tiles
+ *  it rejects, the words it finds again, the longest path and the words it
+ *  reports. The choice is final per search, and the solver keeps separate
+ *  searches for instrumented use, so the counters cost an uninstrumented
+ *  search nothing but a well-predicted branch. With a Recorder set, a search
+ *  also times the board scan and the search, lets the recorder begin before
+ *  the scan, and hands itself to the recorder when done.
+ *
+ *  There are two ways to step from a tile to the next ones. Dictionary-
+ *  driven, every child symbol of the record that a neighbor tile has is
+ *  looked for among the neighbor tiles in turn. Board-driven, every neighbor
+ *  tile is looked at once and jumps straight to the child record of its
+ *  symbol, which saves the repeated scans whenever more than one child
+ *  symbol is around. The two only tie when a path can rarely go on with
+ *  more than one symbol, so the AUTO traversal goes board-driven unless the
+ *  dictionary's branching, the number of distinct symbols on the board or
+ *  the mean number of neighbor tiles says that is the case.
+ *****************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class BoggleSearch {
+
+    private final BoggleDictionary dictionary;
+    private final boolean filtered;
+    private final int[] found;
+    private int generation;
+
+    // prefilter state: tiles per symbol, the symbols with at least one and
+    // at least two tiles, the set of the board's bigrams, and whether the
+    // board is sparse enough for the prefilter to pay
+    private final int[] counts = new int[BoggleDictionary.ALPHABET_SIZE];
+    private int once;
+    private int twice;
+    private boolean prefiltering;
+    private final long[] bigrams = new long[(BoggleDictionary.ALPHABET_SIZE * BoggleDictionary.ALPHABET_SIZE + 63) >>> 6];
+
+    private BoggleBoard board;      // the board that was scanned last
+    private BoggleGrid grid;
+    private int[] symbols = new int[0];
+    private int[] nearby = new int[0];
+    private long[] visited = new long[0];
+    private char[] path = new char[0];
+    private int[] tileAt = new int[0];
+    private Sink sink;
+    private AtomicBoolean cancel;   // the sink's cancel flag, or null
+    private boolean stopped;
+
+    // how to step to the next tiles, the dictionary's branching and the
+    // symbols on the board, which choose the way for an AUTO traversal
+    BoggleSolver.Traversal traversal = BoggleSolver.Traversal.AUTO;
+    private final double branching;
+    private int boardSymbols;
+    private boolean boardDriven;
+
+    // instrumentation of the last search: the counters, kept only by a
+    // counting search, and what the recorder began the search with
+    private final boolean counting;
+    Recorder recorder;
+    Object event;
+    long nodes;
+    long neighborMisses;
+    long duplicates;
+    int maxDepth;
+    int words;
+    long scanNanos;
+    long searchNanos;
+
+    /**
+     * Hears of every search as it starts and after it is done, while it is
+     * set.
+     */
+    interface Recorder {
+        /**
+         * Called before the board is scanned. What it returns is kept in the
+         * search's event field until the search is recorded.
+         */
+        Object begin();
+
+        void record(BoggleSearch search, int rows, int cols);
+    }
+
+    /**
+     * Receives the words of a search.
+     */
+    abstract static class Sink {
+        // words shorter than this are neither reported nor searched for
+        int minLength = 3;
+
+        // stops the search at its next step once set, or null
+        AtomicBoolean cancel;
+
+        /**
+         * Receives a word that has not been reported before in this search.
+         *
+         * @param id     the word id
+         * @param path   the letters of the word
+         * @param length the number of letters
+         * @return false to stop the search
+         */
+        abstract boolean accept(int id, char[] path, int length);
+    }
+
+    /**
+     * Collects the words as Strings, together with their ids.
+     */
+    private static final class ListSink extends Sink {
+        final List<String> words = new ArrayList<>();
+        int[] ids = new int[16];
+        int count;
+
+        @Override
+        boolean accept(int id, char[] path, int length) {
+            words.add(new String(path, 0, length));
+            if (count == ids.length) ids = Arrays.copyOf(ids, 2 * count);
+            ids[count++] = id;
+            return true;
+        }
+    }
+
+    private int[] lastIds = new int[0];
+
+    // the fewest symbols a path must usually be able to go on with for the
+    // AUTO traversal to go board-driven
+    private static final double BOARD_DRIVEN_CHOICES = 1.5;
+
+    // the most distinct bigrams a board may have for the prefilter to be used
+    private static final int SPARSE_BIGRAMS = 16;
+
+    BoggleSearch(BoggleDictionary dictionary, double branching, boolean counting) {
+        this.dictionary = dictionary;
+        this.branching = branching;
+        this.counting = counting;
+        this.filtered = dictionary.hasFilters();
+        this.found = new int[dictionary.size()];
+    }
+
+    /**
+     * Returns all words of three or more letters that can be formed on the
+     * given board, each word once.
+     *
+     * @param board a Boggle board
+     * @return the valid words
+     */
+    List<String> search(BoggleBoard board) {
+        return search(board, 0, board.rows() * board.cols());
+    }
+
+    /**
+     * Returns the words of three or more letters whose paths start on one of
+     * the tiles from through to - 1, each word once. Searching the same board
+     * again, say for another range of tiles, reuses the scan of the board.
+     *
+     * @param board a Boggle board
+     * @param from  the first starting tile, in row-major order
+     * @param to    one past the last starting tile
+     * @return the valid words starting in the range
+     */
+    List<String> search(BoggleBoard board, int from, int to) {
+        ListSink list = new ListSink();
+        search(board, from, to, list);
+        lastIds = Arrays.copyOf(list.ids, list.count);
+        return list.words;
+    }
+
+    /**
+     * Hands every word whose path starts on one of the tiles from through
+     * to - 1 to the sink, each word once, until the sink asks to stop.
+     *
+     * @param board a Boggle board
+     * @param from  the first starting tile, in row-major order
+     * @param to    one past the last starting tile
+     * @param sink  receives the words
+     */
+    void search(BoggleBoard board, int from, int to, Sink sink) {
+        long start = begin();
+        if (board != this.board) {
+            scanBoard(board);
+            this.board = board;
+        }
+        run(from, to, sink, start);
+    }
+
+    /**
+     * Hands every word of the packed m-by-n board to the sink, each word
+     * once, until the sink asks to stop. The board is scanned every time,
+     * since the array may have been rolled again in place.
+     *
+     * @param rows   the number of rows
+     * @param cols   the number of columns
+     * @param packed the board packed as by BoggleGenerator
+     * @param sink   receives the words
+     */
+    void search(int rows, int cols, long[] packed, Sink sink) {
+        long start = begin();
+        this.board = null;
+        prepare(rows, cols);
+        int tiles = grid.tiles();
+        if (packed.length < BoggleGenerator.packedLength(rows, cols))
+            throw new IllegalArgumentException("packed array is too short for a " + rows + "-by-" + cols + " board");
+        long word = 0;
+        for (int tile = 0; tile < tiles; tile++) {
+            int shift = tile % BoggleGenerator.TILES_PER_WORD;
+            if (shift == 0) word = packed[tile / BoggleGenerator.TILES_PER_WORD];
+            int value = (int) (word >>> (BoggleGenerator.TILE_BITS * shift) & BoggleGenerator.TILE_MASK);
+            if (value >= 26) throw new IllegalArgumentException("invalid letter value " + value + " at tile " + tile);
+            symbols[tile] = value == 'Q' - 'A' ? BoggleDictionary.QU : value;
+        }
+        scanNeighbors(tiles);
+        run(0, tiles, sink, start);
+    }
+
+    /**
+     * Lets the recorder begin the search, if there is one, and returns the
+     * time it starts at.
+     */
+    private long begin() {
+        if (recorder == null) return 0;
+        event = recorder.begin();
+        return System.nanoTime();
+    }
+
+    private void run(int from, int to, Sink sink, long start) {
+        Recorder recorder = this.recorder;
+        long scanned = recorder == null ? 0 : System.nanoTime();
+        nextGeneration();
+        boardDriven = boardDriven();
+        this.sink = sink;
+        cancel = sink.cancel;
+        stopped = false;
+        nodes = 0;
+        neighborMisses = 0;
+        duplicates = 0;
+        maxDepth = 0;
+        words = 0;
+        try {
+            for (int tile = from; tile < to && !stopped; tile++) {
+                int child = dictionary.child(BoggleDictionary.ROOT, symbols[tile]);
+                if (child >= 0) visit(child, tile, 0, 0);
+            }
+        }
+        catch (RuntimeException | Error e) {
+            // the sink threw halfway down a path: drop the path state
+            Arrays.fill(visited, 0);
+            this.board = null;
+            throw e;
+        }
+        finally {
+            this.sink = null;
+            cancel = null;
+        }
+        if (recorder != null) {
+            scanNanos = scanned - start;
+            searchNanos = System.nanoTime() - scanned;
+            recorder.record(this, grid.rows, grid.cols);
+        }
+    }
+
+    /**
+     * Returns true while a search is running, which can only be seen from
+     * inside a sink.
+     *
+     * @return true if the search is in use
+     */
+    boolean busy() {
+        return sink != null;
+    }
+
+    /**
+     * Returns the tiles of the current path, for a sink to read while it
+     * receives a word: the tile of every letter that starts a tile, indexed
+     * like the letters of the path. The 'Q' of a "Qu" tile is followed by a
+     * 'U' with no tile of its own.
+     *
+     * @return the tiles of the path
+     */
+    int[] tiles() {
+        return tileAt;
+    }
+
+    /**
+     * Returns the word ids of the words returned by the last search, in the
+     * same order.
+     *
+     * @return the ids of the last words found
+     */
+    int[] ids() {
+        return lastIds;
+    }
+
+    private void scanBoard(BoggleBoard board) {
+        int rows = board.rows();
+        int cols = board.cols();
+        prepare(rows, cols);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                symbols[i * cols + j] = BoggleDictionary.tileSymbol(board.getLetter(i, j));
+            }
+        }
+        scanNeighbors(grid.tiles());
+    }
+
+    /**
+     * Picks the grid of an m-by-n board and grows the scratch arrays to fit.
+     */
+    private void prepare(int rows, int cols) {
+        if (grid == null || grid.rows != rows || grid.cols != cols) {
+            grid = BoggleGrid.of(rows, cols);
+        }
+        int tiles = grid.tiles();
+        if (symbols.length < tiles) {
+            symbols = new int[tiles];
+            nearby = new int[tiles];
+            visited = new long[(tiles + 63) >>> 6];
+            // a path spells at most two letters per tile
+            path = new char[2 * tiles];
+            tileAt = new int[2 * tiles];
+        }
+    }
+
+    /**
+     * Records the symbols next to every tile, and the prefilter state, once
+     * the symbols of the tiles are in.
+     */
+    private void scanNeighbors(int tiles) {
+        int[] offsets = grid.offsets;
+        int[] neighbors = grid.neighbors;
+        boardSymbols = 0;
+        for (int tile = 0; tile < tiles; tile++) {
+            int mask = 0;
+            for (int k = offsets[tile]; k < offsets[tile + 1]; k++) {
+                mask |= 1 << symbols[neighbors[k]];
+            }
+            nearby[tile] = mask;
+            boardSymbols |= 1 << symbols[tile];
+        }
+        if (filtered) scanFilters(tiles);
+    }
+
+    /**
+     * Returns true if the current board is to be searched board-driven.
+     */
+    private boolean boardDriven() {
+        if (traversal != BoggleSolver.Traversal.AUTO) return traversal == BoggleSolver.Traversal.BOARD;
+        double degree = (double) grid.neighbors.length / grid.tiles();
+        double choices = Math.min(branching, Math.min(Integer.bitCount(boardSymbols), degree));
+        return choices >= BOARD_DRIVEN_CHOICES;
+    }
+
+    private void scanFilters(int tiles) {
+        Arrays.fill(counts, 0);
+        Arrays.fill(bigrams, 0);
+        int[] offsets = grid.offsets;
+        int[] neighbors = grid.neighbors;
+        for (int tile = 0; tile < tiles; tile++) {
+            int s = symbols[tile];
+            counts[s]++;
+            for (int k = offsets[tile]; k < offsets[tile + 1]; k++) {
+                int bigram = BoggleDictionary.bigram(s, symbols[neighbors[k]]);
+                bigrams[bigram >>> 6] |= 1L << bigram;
+            }
+        }
+        once = 0;
+        twice = 0;
+        for (int s = 0; s < counts.length; s++) {
+            if (counts[s] >= 1) once |= 1 << s;
+            if (counts[s] >= 2) twice |= 1 << s;
+        }
+        int distinct = 0;
+        for (long word : bigrams) {
+            distinct += Long.bitCount(word);
+        }
+        prefiltering = distinct <= SPARSE_BIGRAMS;
+    }
+
+    /**
+     * Returns true if the board has what every word below the record needs.
+     */
+    private boolean feasible(int record) {
+        return (dictionary.needed(record) & ~once) == 0
+            && (dictionary.neededTwice(record) & ~twice) == 0
+            && onBoard(dictionary.firstBigram(record))
+            && onBoard(dictionary.secondBigram(record));
+    }
+
+    private boolean onBoard(int bigram) {
+        return bigram < 0 || (bigrams[bigram >>> 6] & (1L << bigram)) != 0;
+    }
+
+    private void nextGeneration() {
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(found, 0);
+            generation = 1;
+        }
+    }
+
+    /**
+     * Visits the given tile as the next step of the current path, where
+     * record is the trie record reached by the path including the tile.
+     *
+     * @param record the trie record of the path
+     * @param tile   the tile that is visited
+     * @param length the number of letters on the path before the tile
+     * @param rank   the number of words that come before the path's parent
+     *               record's subtree, plus the words below its earlier
+     *               children
+     */
+    private void visit(int record, int tile, int length, int rank) {
+        if (cancel != null && cancel.get()) {
+            stopped = true;
+            return;
+        }
+        int s = symbols[tile];
+        tileAt[length] = tile;
+        if (s == BoggleDictionary.QU) {
+            path[length++] = 'Q';
+            path[length++] = 'U';
+        }
+        else {
+            path[length++] = (char) ('A' + s);
+        }
+        if (counting) {
+            nodes++;
+            if (length > maxDepth) maxDepth = length;
+        }
+        if (length + dictionary.longest(record) < sink.minLength) return;
+        int id = rank + dictionary.before(record);
+        boolean word = dictionary.isWord(record);
+        if (word && length >= sink.minLength) {
+            if (found[id] == generation) {
+                if (counting) duplicates++;
+            }
+            else {
+                found[id] = generation;
+                if (counting) words++;
+                if (!sink.accept(id, path, length)) {
+                    stopped = true;
+                    return;
+                }
+            }
+        }
+
+        // only symbols on unvisited neighbor tiles can continue the path
+        int mask = dictionary.childMask(record) & nearby[tile];
+        if (mask == 0) return;
+        if (prefiltering && !feasible(record)) return;
+        visited[tile >>> 6] |= 1L << tile;
+        int first = dictionary.firstChild(record);
+        int all = dictionary.childMask(record);
+        int childRank = word ? id + 1 : id;
+        int[] neighbors = grid.neighbors;
+        int from = grid.offsets[tile];
+        int to = grid.offsets[tile + 1];
+        if (boardDriven) {
+            // each neighbor tile jumps straight to the child of its symbol
+            for (int k = from; k < to && !stopped; k++) {
+                int neighbor = neighbors[k];
+                int next = symbols[neighbor];
+                if ((mask & (1 << next)) == 0 || (visited[neighbor >>> 6] & (1L << neighbor)) != 0) {
+                    if (counting) neighborMisses++;
+                    continue;
+                }
+                visit(first + Integer.bitCount(all & ((1 << next) - 1)), neighbor, length, childRank);
+            }
+        }
+        else {
+            // each child symbol scans the neighbor tiles for itself
+            for (; mask != 0 && !stopped; mask &= mask - 1) {
+                int next = Integer.numberOfTrailingZeros(mask);
+                int child = first + Integer.bitCount(all & ((1 << next) - 1));
+                for (int k = from; k < to && !stopped; k++) {
+                    int neighbor = neighbors[k];
+                    if (symbols[neighbor] != next || (visited[neighbor >>> 6] & (1L << neighbor)) != 0) {
+                        if (counting) neighborMisses++;
+                        continue;
+                    }
+                    visit(child, neighbor, length, childRank);
+                }
+            }
+        }
+        visited[tile >>> 6] &= ~(1L << tile);
+    }
+}
@@ -0,0 +1,101 @@
+/* *****************************************************************************
+ *  Name: BoggleSearchEvent.java
+ *  Date: 10/18/2026
+ *  Description: A JDK Flight Recorder event for one instrumented search of
+ *               a Boggle board, with the shape of the dictionary alongside
+ *               the counters so that slow boards can be told apart from
+ *               large dictionaries.
+ *
+ *  % java -XX:StartFlightRecording:filename=boggle.jfr BoggleSolver ...
+ *  % jfr print --events boggle.Search boggle.jfr
+ *
+ *  Only the solver touches this class, by name through its Emitter, and only
+ *  when the JVM has Flight Recorder (JDK 11 or later). This file needs
+ *  jdk.jfr to compile; leave it out of a build for Java 8, and the solver
+ *  simply emits no events.
+ *****************************************************************************/
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("boggle.Search")
+@Label("Boggle Search")
+@Category("Boggle")
+@Description("One search of a Boggle board")
+@StackTrace(false)
+class BoggleSearchEvent extends Event {
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Columns")
+    int cols;
+
+    @Label("Dictionary Words")
+    int dictionaryWords;
+
+    @Label("Dictionary Records")
+    int dictionaryRecords;
+
+    @Label("Nodes Visited")
+    long nodes;
+
+    @Label("Neighbor Misses")
+    long neighborMisses;
+
+    @Label("Duplicate Hits")
+    long duplicates;
+
+    @Label("Maximum Depth")
+    int maxDepth;
+
+    @Label("Words Found")
+    long words;
+
+    @Label("Scan Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long scanTime;
+
+    @Label("Search Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long searchTime;
+
+    /**
+     * The solver's way in, created by reflection. An event begins before the
+     * board is scanned and ends after the search, so its duration is the
+     * whole solve and a duration threshold keeps only the slow boards.
+     */
+    static final class Emitter implements BoggleSolver.FlightRecorder {
+        @Override
+        public Object begin() {
+            BoggleSearchEvent event = new BoggleSearchEvent();
+            if (!event.isEnabled()) return null;
+            event.begin();
+            return event;
+        }
+
+        @Override
+        public void commit(Object begun, BoggleStats stats, int rows, int cols, BoggleDictionary dictionary) {
+            BoggleSearchEvent event = (BoggleSearchEvent) begun;
+            event.end();
+            if (!event.shouldCommit()) return;
+            event.rows = rows;
+            event.cols = cols;
+            event.dictionaryWords = dictionary.size();
+            event.dictionaryRecords = dictionary.records();
+            event.nodes = stats.nodes();
+            event.neighborMisses = stats.neighborMisses();
+            event.duplicates = stats.duplicates();
+            event.maxDepth = stats.maxDepth();
+            event.words = stats.words();
+            event.scanTime = stats.scanNanos();
+            event.searchTime = stats.searchNanos();
+            event.commit();
+        }
+    }
+}
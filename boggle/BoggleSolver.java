@@ -5,29 +5,82 @@
  *               directory.
  *****************************************************************************/
 
-import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.StdOut;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * The solver only reads its dictionary, and every thread keeps its board
+ * state in a {@link BoggleSearch} of its own, so one solver can be shared by
+ * any number of threads.
+ *
+ * <p>With {@link #setInstrumented(boolean)} turned on, every search is also
+ * timed, its counters are added to the solver's totals, and it is emitted as
+ * a {@code boggle.Search} Flight Recorder event when a recording asks for it.
+ *
+ * <p>With {@link #setCacheBudget(long)}, solved boards are kept in a
+ * {@link BoggleCache} under a key that all rotations and reflections of a
+ * board share, and a board seen before is answered without a search.
+ */
 public class BoggleSolver {
 
-    private class TSTNode {
-        public int value = 0;
-        public char c;
-        public TSTNode left, middle, right;
-    }
+    // the fewest starting tiles that one parallel search task takes on
+    private static final int MIN_TASK_TILES = 16;
+
+    // the side of the square of starting tiles of one window of a tiled solve
+    private static final int TILED_CORE = 64;
+
+    // Flight Recorder events need JDK 11 or later, so the event class is
+    // loaded by name and this is null without it
+    private static final FlightRecorder FLIGHT_RECORDER = flightRecorder();
+
+    private final BoggleDictionary dictionary;
+    private volatile WordTable table;       // built on first use
+    private final double branching;         // the mean children of a record near the root
+    private volatile Traversal traversal = Traversal.AUTO;
+    private final ThreadLocal<BoggleSearch> searches;
+    private final ThreadLocal<BoggleSearch> countingSearches;
+    private volatile BoggleCache cache;     // solved boards, or null
+
+    // instrumentation: the stats of every thread's last search, and totals
+    private volatile boolean instrumented;
+    private final BoggleSearch.Recorder recorder = new BoggleSearch.Recorder() {
+        @Override
+        public Object begin() {
+            return FLIGHT_RECORDER == null ? null : FLIGHT_RECORDER.begin();
+        }
 
-    private static final char ESCAPE_QU_CHAR = '~';
-    private final HashMap<Character, List<Integer>> tileLetters;
-    private final List<Map<Character, List<Integer>>> tileNeighbors;
-    private TSTNode root = null;
+        @Override
+        public void record(BoggleSearch search, int rows, int cols) {
+            BoggleSolver.this.record(search, rows, cols);
+        }
+    };
+    private final ThreadLocal<BoggleStats> lastStats = new ThreadLocal<>();
+    private final LongAdder searchCount = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder neighborMisses = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+    private final LongAdder words = new LongAdder();
+    private final LongAdder scanNanos = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
 
     /**
      * Initializes the data structure using the given array of strings as the
@@ -37,10 +90,31 @@ public class BoggleSolver {
      *                  letters A through Z.
      */
     public BoggleSolver(String[] directory) {
-        tileLetters = new HashMap<>();
-        tileNeighbors = new ArrayList<>();
-        root = null;
-        buildTST(directory);
+        this(BoggleDictionary.compile(directory));
+    }
+
+    /**
+     * Initializes the data structure using the given compiled dictionary.
+     *
+     * @param dictionary the compiled directory
+     */
+    public BoggleSolver(BoggleDictionary dictionary) {
+        if (dictionary == null) throw new IllegalArgumentException("dictionary is null");
+        this.dictionary = dictionary;
+        this.branching = dictionary.branching();
+        this.searches = ThreadLocal.withInitial(() -> new BoggleSearch(dictionary, branching, false));
+        this.countingSearches = ThreadLocal.withInitial(() -> new BoggleSearch(dictionary, branching, true));
+    }
+
+    /**
+     * Returns a solver that searches a dictionary snapshot in place. The
+     * snapshot is written by {@code java BoggleDictionary}.
+     *
+     * @param snapshot the name of the snapshot file
+     * @return a solver using the snapshot as its directory
+     */
+    public static BoggleSolver fromSnapshot(String snapshot) {
+        return new BoggleSolver(BoggleDictionary.load(snapshot));
     }
 
     /**
@@ -51,192 +125,996 @@ public class BoggleSolver {
      * @return an Iterable including all valid words
      */
     public Iterable<String> getAllValidWords(BoggleBoard board) {
-        tileLetters.clear();
-        tileNeighbors.clear();
-        scanBoard(board);
-        Set<String> words = searchTST(board.rows() * board.cols());
-        return words;
+        if (board == null) throw new IllegalArgumentException("board is null");
+        BoggleCache.Entry cached = cached(board);
+        if (cached != null) return Collections.unmodifiableList(Arrays.asList(cached.words));
+        return search().search(board);
     }
 
     /**
-     * Returns the score of the given word if it is in the directory, zero
-     * otherwise.
+     * Returns the ids of all valid words in the given Boggle board. Word ids
+     * are dense, from 0 to one less than the number of words in the
+     * directory, so they can index arrays directly.
      *
-     * @param word The word contains only the uppercase letters A through Z.
-     * @return The score of the given word.
+     * @param board a Boggle board
+     * @return the ids of the valid words
      */
-    public int scoreOf(String word) {
-        TSTNode node = get(word, root, 0);
-        if (node == null) return 0;
-        int length = node.value;
-        if (length < 3) return 0;
-        if (length <= 4) return 1;
-        if (length == 5) return 2;
-        if (length == 6) return 3;
-        if (length == 7) return 5;
-        else return 11;
+    public int[] getAllValidWordIds(BoggleBoard board) {
+        if (board == null) throw new IllegalArgumentException("board is null");
+        BoggleCache.Entry cached = cached(board);
+        if (cached != null) return cached.ids.clone();
+        return searchIds(board);
     }
 
-    private TSTNode get(String key, TSTNode node, int d) {
-        if (node == null) return null;
-        char c = key.charAt(d);
-        boolean isQu = (c == 'Q' && d < key.length() - 1 && key.charAt(d + 1) == 'U');
-        if (isQu) c = ESCAPE_QU_CHAR;
-        if (c < node.c) {
-            return get(key, node.left, d);
-        } else if (c > node.c) {
-            return get(key, node.right, d);
-        } else if (isQu ? (d < key.length() - 2) : (d < key.length() - 1)) {
-            return get(key, node.middle, d + (isQu ? 2 : 1));
+    /**
+     * Returns all valid words in the given board, each with one path of
+     * tiles that spells it.
+     *
+     * @param board a Boggle board
+     * @return the valid words and their paths
+     */
+    public BogglePaths getAllValidPaths(BoggleBoard board) {
+        if (board == null) throw new IllegalArgumentException("board is null");
+        BoggleSearch search = search();
+        PathSink paths = new PathSink(search, board.cols());
+        search.search(board, 0, board.rows() * board.cols(), paths);
+        return paths.paths();
+    }
+
+    private static final class PathSink extends BoggleSearch.Sink {
+        private final BoggleSearch search;
+        private final int cols;
+        private final List<String> words = new ArrayList<>();
+        private int[] ids = new int[16];
+        private int[] starts = new int[16];
+        private int[] offsets = new int[17];
+        private byte[] steps = new byte[64];
+        private int count;
+
+        PathSink(BoggleSearch search, int cols) {
+            this.search = search;
+            this.cols = cols;
+        }
+
+        @Override
+        boolean accept(int id, char[] path, int length) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, 2 * count);
+                starts = Arrays.copyOf(starts, 2 * count);
+                offsets = Arrays.copyOf(offsets, 2 * count + 1);
+            }
+            int end = offsets[count];
+            if (steps.length < end + length) steps = Arrays.copyOf(steps, 2 * (end + length));
+            int[] tiles = search.tiles();
+            int previous = tiles[0];
+            for (int i = path[0] == 'Q' ? 2 : 1; i < length; i += path[i] == 'Q' ? 2 : 1) {
+                int tile = tiles[i];
+                int dr = tile / cols - previous / cols;
+                int dc = tile % cols - previous % cols;
+                steps[end++] = (byte) (3 * (dr + 1) + dc + 1);
+                previous = tile;
+            }
+            words.add(new String(path, 0, length));
+            ids[count] = id;
+            starts[count] = tiles[0];
+            offsets[++count] = end;
+            return true;
+        }
+
+        BogglePaths paths() {
+            return new BogglePaths(cols, words.toArray(new String[0]), Arrays.copyOf(ids, count),
+                                   Arrays.copyOf(starts, count), Arrays.copyOf(offsets, count + 1),
+                                   Arrays.copyOf(steps, offsets[count]));
         }
-        return node;
     }
 
+    private int[] searchIds(BoggleBoard board) {
+        IdSink ids = new IdSink();
+        search().search(board, 0, board.rows() * board.cols(), ids);
+        return Arrays.copyOf(ids.ids, ids.count);
+    }
+
+    /**
+     * Keeps up to about the given number of bytes of solved boards in a
+     * cache, replacing any earlier cache, or drops the cache if the budget
+     * is 0. The cache answers getAllValidWords, getAllValidWordIds,
+     * totalScore and solve for boards it has seen, or their rotations and
+     * reflections; the words of a cached board may come in another order.
+     *
+     * @param bytes the memory budget of the cache, or 0 for none
+     */
+    public void setCacheBudget(long bytes) {
+        if (bytes < 0) throw new IllegalArgumentException("budget is negative");
+        cache = bytes == 0 ? null : new BoggleCache(bytes);
+    }
 
     /**
-     * Builds a Ternary Search Tree corresponding to the directory.
+     * Returns the cache of solved boards, with its hit and miss counts.
      *
-     * @param directory
+     * @return the cache, or null if there is none
      */
-    private void buildTST(String[] directory) {
-        for (String s : directory) {
-            put(s);
+    public BoggleCache cache() {
+        return cache;
+    }
+
+    /**
+     * Returns the solved form of the board from the cache, solving and
+     * caching it on a miss, or null if there is no cache.
+     */
+    private BoggleCache.Entry cached(BoggleBoard board) {
+        BoggleCache cache = this.cache;
+        if (cache == null) return null;
+        String key = BoggleCache.canonical(board);
+        BoggleCache.Entry entry = cache.get(key);
+        if (entry == null) {
+            BoggleSearch search = search();
+            String[] words = search.search(board).toArray(new String[0]);
+            int[] ids = search.ids();
+            int points = 0;
+            for (String word : words) {
+                points += score(word.length());
+            }
+            entry = new BoggleCache.Entry(words, ids, points);
+            cache.put(key, entry);
         }
+        return entry;
     }
 
     /**
-     * Puts a string into the TST.
+     * Returns the set of all valid words in the given packed m-by-n board, as
+     * rolled by {@link BoggleGenerator}, without building a BoggleBoard.
      *
-     * @param key
+     * @param rows   the number of rows
+     * @param cols   the number of columns
+     * @param packed the packed board
+     * @return an Iterable including all valid words
      */
-    private void put(String key) {
-        root = put(root, key, key.length(), 0);
+    public Iterable<String> getAllValidWords(int rows, int cols, long[] packed) {
+        checkPacked(rows, cols, packed);
+        WordSink words = new WordSink();
+        search().search(rows, cols, packed, words);
+        return words.words;
+    }
+
+    private static void checkPacked(int rows, int cols, long[] packed) {
+        if (packed == null) throw new IllegalArgumentException("packed board is null");
+        if (rows <= 0) throw new IllegalArgumentException("number of rows must be a positive integer");
+        if (cols <= 0) throw new IllegalArgumentException("number of columns must be a positive integer");
+    }
+
+    private static final class WordSink extends BoggleSearch.Sink {
+        private final List<String> words = new ArrayList<>();
+
+        @Override
+        boolean accept(int id, char[] path, int length) {
+            words.add(new String(path, 0, length));
+            return true;
+        }
     }
 
-    private TSTNode put(TSTNode x, String key, int val, int d) {
-        char c = key.charAt(d);
-        boolean isQu = (c == 'Q' && d < key.length() - 1 && key.charAt(d + 1) == 'U');
-        c = isQu ? ESCAPE_QU_CHAR : c;
-        if (x == null) {
-            x = new TSTNode();
-            // 'QU' is represented by '~'
-            x.c = isQu ? ESCAPE_QU_CHAR : c;
+    private static final class IdSink extends BoggleSearch.Sink {
+        private int[] ids = new int[16];
+        private int count;
+
+        @Override
+        boolean accept(int id, char[] path, int length) {
+            if (count == ids.length) ids = Arrays.copyOf(ids, 2 * count);
+            ids[count++] = id;
+            return true;
         }
-        if (c < x.c)
-            x.left = put(x.left, key, val, d);
-        else if (c > x.c)
-            x.right = put(x.right, key, val, d);
-        else if (isQu ? d < key.length() - 2 : d < key.length() - 1)
-            x.middle = put(x.middle, key, val, d + (isQu ? 2 : 1));
-        else
-            x.value = val;
-        return x;
     }
 
-    private void scanBoard(BoggleBoard board) {
-        for (int i = 0; i < board.rows(); i++) {
-            for (int j = 0; j < board.cols(); j++) {
-                char c = board.getLetter(i, j);
-                if (c == 'Q') c = ESCAPE_QU_CHAR;
-                if (!tileLetters.containsKey(c)) {
-                    tileLetters.put(c, new ArrayList<>());
+    /**
+     * Passes each valid word in the given board to the action as soon as it
+     * is found, until the action returns false.
+     *
+     * @param board  a Boggle board
+     * @param action receives each word once; returns false to stop
+     */
+    public void forEachValidWord(BoggleBoard board, Predicate<String> action) {
+        forEachValidWord(board, 1, action);
+    }
+
+    /**
+     * Passes each valid word in the given board that scores at least
+     * minScore to the action as soon as it is found, until the action returns
+     * false. Parts of the dictionary that only hold lower-scoring words are
+     * not searched at all.
+     *
+     * @param board    a Boggle board
+     * @param minScore the lowest score of a word to report
+     * @param action   receives each word once; returns false to stop
+     */
+    public void forEachValidWord(BoggleBoard board, int minScore, Predicate<String> action) {
+        forEachValidWord(board, minScore, action, null);
+    }
+
+    /**
+     * Passes each valid word in the given board that scores at least
+     * minScore to the action as soon as it is found, until the action returns
+     * false or the cancel flag is set. The flag can be set from any thread;
+     * the search checks it on every step, so it stops right away even while
+     * no words are found.
+     *
+     * @param board    a Boggle board
+     * @param minScore the lowest score of a word to report
+     * @param action   receives each word once; returns false to stop
+     * @param cancel   stops the search once set, or null
+     */
+    public void forEachValidWord(BoggleBoard board, int minScore, Predicate<String> action, AtomicBoolean cancel) {
+        if (board == null) throw new IllegalArgumentException("board is null");
+        if (action == null) throw new IllegalArgumentException("action is null");
+        BoggleSearch.Sink sink = new BoggleSearch.Sink() {
+            @Override
+            boolean accept(int id, char[] path, int length) {
+                return action.test(new String(path, 0, length));
+            }
+        };
+        sink.minLength = minLength(minScore);
+        sink.cancel = cancel;
+        search().search(board, 0, board.rows() * board.cols(), sink);
+    }
+
+    /**
+     * Returns the k highest-scoring valid words in the given board, best
+     * first, with ties in alphabetical order. Once k words are known, the
+     * search skips every part of the dictionary that cannot reach the k-th
+     * word's score.
+     *
+     * @param board a Boggle board
+     * @param k     the number of words
+     * @return at most k words with the highest scores
+     */
+    public List<String> topValidWords(BoggleBoard board, int k) {
+        if (board == null) throw new IllegalArgumentException("board is null");
+        if (k < 0) throw new IllegalArgumentException("k is negative");
+        if (k == 0) return Collections.emptyList();
+        TopSink top = new TopSink(k);
+        search().search(board, 0, board.rows() * board.cols(), top);
+        List<String> words = new ArrayList<>(top.heap);
+        words.sort(TopSink.WORST_FIRST.reversed());
+        return words;
+    }
+
+    /**
+     * Keeps the k best words in a heap with the worst on top, where a lower
+     * score is worse and, among equal scores, a later word in alphabetical
+     * order. Raises the minimum length of the search to what it takes to tie
+     * the k-th word's score, since a tie can still displace it.
+     */
+    private static final class TopSink extends BoggleSearch.Sink {
+        static final Comparator<String> WORST_FIRST =
+            Comparator.comparingInt((String word) -> score(word.length())).thenComparing(Comparator.reverseOrder());
+
+        private final int k;
+        private final PriorityQueue<String> heap;
+
+        TopSink(int k) {
+            this.k = k;
+            this.heap = new PriorityQueue<>(k, WORST_FIRST);
+        }
+
+        @Override
+        boolean accept(int id, char[] path, int length) {
+            String word = null;
+            if (heap.size() == k) {
+                String worst = heap.peek();
+                int score = score(length);
+                int kth = score(worst.length());
+                if (score < kth) return true;
+                if (score == kth) {
+                    word = new String(path, 0, length);
+                    if (word.compareTo(worst) >= 0) return true;
                 }
-                tileLetters.get(c).add(i * board.cols() + j);
-                tileNeighbors.add(getNeighbors(i, j, board));
+                heap.poll();
             }
+            heap.add(word != null ? word : new String(path, 0, length));
+            if (heap.size() == k) minLength = minLength(score(heap.peek().length()));
+            return true;
         }
     }
 
-    private Set<String> searchTST(int boardSize) {
-        Set<String> res = new HashSet<>();
-        StringBuilder b = new StringBuilder();
-        ArrayList<Boolean> visited = new ArrayList<Boolean>(
-                Collections.nCopies(boardSize, Boolean.FALSE));
+    /**
+     * Returns the search of the calling thread, a counting one while the
+     * solver is instrumented, or a fresh one if that search is busy, say
+     * because a word action solves another board.
+     */
+    private BoggleSearch search() {
+        boolean instrumented = this.instrumented;
+        BoggleSearch search = (instrumented ? countingSearches : searches).get();
+        if (search.busy()) search = new BoggleSearch(dictionary, branching, instrumented);
+        search.recorder = instrumented ? recorder : null;
+        search.traversal = traversal;
+        return search;
+    }
+
+    /**
+     * The ways a search can step from a tile to the next tiles of a path.
+     */
+    public enum Traversal {
+        /** for every child symbol of the dictionary record, scan the neighbor tiles for it */
+        DICTIONARY,
+        /** for every neighbor tile, jump straight to the child record of its symbol */
+        BOARD,
+        /** choose per board, from the dictionary's branching and the board's symbols and size */
+        AUTO
+    }
+
+    /**
+     * Sets the way searches step from tile to tile. The valid words are the
+     * same either way, though they may come in another order.
+     *
+     * @param traversal the traversal, AUTO by default
+     */
+    public void setTraversal(Traversal traversal) {
+        if (traversal == null) throw new IllegalArgumentException("traversal is null");
+        this.traversal = traversal;
+    }
 
-        dfsTST(res, b, root, visited, -1);
-        return res;
+    /**
+     * Returns the way searches step from tile to tile.
+     *
+     * @return the traversal
+     */
+    public Traversal getTraversal() {
+        return traversal;
     }
 
+    /**
+     * Turns the instrumentation of searches on or off. While it is off, a
+     * search only bumps a few counters in its own fields.
+     *
+     * @param instrumented whether to time and record searches
+     */
+    public void setInstrumented(boolean instrumented) {
+        this.instrumented = instrumented;
+    }
 
     /**
-     * @param res
-     * @param builder
-     * @param node
-     * @param visited
-     * @param parentTileIndex 父节点的骰子索引
+     * Returns true if searches are instrumented.
+     *
+     * @return true if searches are timed and recorded
      */
-    private void dfsTST(Set<String> res, StringBuilder builder, TSTNode node, ArrayList<Boolean> visited,
-                int parentTileIndex) {
-        if (node == null) return;
-        Map<Character, List<Integer>> neighbors = null;
-        // Get neighbor tiles of the last character if it isn't the first character of a string.
-        if (parentTileIndex != -1) {
-            neighbors = tileNeighbors.get(parentTileIndex);
+    public boolean isInstrumented() {
+        return instrumented;
+    }
+
+    /**
+     * Returns the stats of the last instrumented search on the calling thread.
+     * A parallel solve runs one search per range of starting tiles, possibly
+     * on other threads; its totals show up in {@link #totalStats()}.
+     *
+     * @return the stats of the last search, or null if there was none
+     */
+    public BoggleStats lastStats() {
+        return lastStats.get();
+    }
+
+    /**
+     * Returns the totals of all instrumented searches since the solver was
+     * created or the stats were last reset.
+     *
+     * @return the aggregate stats
+     */
+    public BoggleStats totalStats() {
+        return new BoggleStats(searchCount.sum(), nodes.sum(), neighborMisses.sum(), duplicates.sum(),
+                               (int) maxDepth.get(), words.sum(), scanNanos.sum(), searchNanos.sum());
+    }
+
+    /**
+     * Clears the totals of all instrumented searches.
+     */
+    public void resetStats() {
+        searchCount.reset();
+        nodes.reset();
+        neighborMisses.reset();
+        duplicates.reset();
+        maxDepth.reset();
+        words.reset();
+        scanNanos.reset();
+        searchNanos.reset();
+    }
+
+    private void record(BoggleSearch search, int rows, int cols) {
+        BoggleStats stats = new BoggleStats(1, search.nodes, search.neighborMisses, search.duplicates,
+                                            search.maxDepth, search.words, search.scanNanos, search.searchNanos);
+        lastStats.set(stats);
+        searchCount.increment();
+        nodes.add(stats.nodes());
+        neighborMisses.add(stats.neighborMisses());
+        duplicates.add(stats.duplicates());
+        maxDepth.accumulate(stats.maxDepth());
+        words.add(stats.words());
+        scanNanos.add(stats.scanNanos());
+        searchNanos.add(stats.searchNanos());
+        if (search.event != null) {
+            FLIGHT_RECORDER.commit(search.event, stats, rows, cols, dictionary);
+            search.event = null;
         }
+    }
 
-        if (parentTileIndex == -1 || neighbors.containsKey(node.c)) {
-            List<Integer> list = null;
+    /**
+     * Emits a Flight Recorder event for a search, begun as the search starts
+     * so the event spans it. BoggleSearchEvent holds the only implementation,
+     * which the solver never names in code, so the solver compiles and runs
+     * on Java 8, where that file is left out.
+     */
+    interface FlightRecorder {
+        /**
+         * Begins the event of a search, or returns null if no recording
+         * wants it.
+         */
+        Object begin();
+
+        void commit(Object event, BoggleStats stats, int rows, int cols, BoggleDictionary dictionary);
+    }
+
+    private static FlightRecorder flightRecorder() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (FlightRecorder) Class.forName("BoggleSearchEvent$Emitter").getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
 
-            if (parentTileIndex == -1) {
-                list = tileLetters.get(node.c);
-            } else {
-                list = neighbors.get(node.c);
+    /**
+     * Returns the set of all valid words in the given Boggle board, splitting
+     * the search by starting tile across the common fork/join pool. This pays
+     * off for large boards, where a single search takes a long time.
+     *
+     * @param board a Boggle board
+     * @return an Iterable including all valid words
+     */
+    public Iterable<String> solveParallel(BoggleBoard board) {
+        return solveParallel(board, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns the set of all valid words in the given Boggle board, splitting
+     * the search by starting tile across the given fork/join pool. Idle
+     * workers steal ranges of starting tiles from busy ones. Each range keeps
+     * its words apart from the others, and the ranges are merged once all of
+     * them are done.
+     *
+     * @param board a Boggle board
+     * @param pool  the pool to run the search on
+     * @return an Iterable including all valid words
+     */
+    public Iterable<String> solveParallel(BoggleBoard board, ForkJoinPool pool) {
+        if (board == null) throw new IllegalArgumentException("board is null");
+        if (pool == null) throw new IllegalArgumentException("pool is null");
+        int tiles = board.rows() * board.cols();
+        int chunk = Math.max(MIN_TASK_TILES, tiles / (8 * pool.getParallelism()));
+        TileRanges ranges = new TileRanges(board, tiles, chunk);
+        pool.invoke(ranges);
+
+        // the same word can start on tiles of different ranges
+        BitSet seen = new BitSet(dictionary.size());
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < ranges.words.length; i++) {
+            int[] ids = ranges.ids[i];
+            for (int k = 0; k < ids.length; k++) {
+                if (seen.get(ids[k])) continue;
+                seen.set(ids[k]);
+                words.add(ranges.words[i].get(k));
             }
-            // The char of the TST node is in the neighbors list of the parent TST node tile in the board
-            if (list != null) {
-                builder.append(node.c == ESCAPE_QU_CHAR ? "QU" : node.c);
-                // Maybe there is more than one tile including "node.c" character.
-                for (int i : list) {
-                    if (visited.get(i)) continue;
-                    if (node.value >= 3) {
-                        res.add(builder.toString());
-                        // node.value = 0; // The word has been put in the list, clear the value.
-                    }
-                    visited.set(i, Boolean.TRUE);
-                    dfsTST(res, builder, node.middle, visited, i);
-                    visited.set(i, Boolean.FALSE);
-                }
-                if (node.c == ESCAPE_QU_CHAR) {
-                    builder.deleteCharAt(builder.length() - 1);
+        }
+        return words;
+    }
+
+    /**
+     * Searches the starting tiles of a board in chunks of a fixed size. Each
+     * chunk writes its words to its own slot, so the tasks share nothing.
+     */
+    private class TileRanges extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final BoggleBoard board;
+        private final int tiles;
+        private final int chunk;
+        private final List<String>[] words;
+        private final int[][] ids;
+        private final int lo, hi;       // the chunks of this task
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        TileRanges(BoggleBoard board, int tiles, int chunk) {
+            this.board = board;
+            this.tiles = tiles;
+            this.chunk = chunk;
+            this.lo = 0;
+            this.hi = (tiles + chunk - 1) / chunk;
+            this.words = new List[hi];
+            this.ids = new int[hi][];
+        }
+
+        private TileRanges(TileRanges parent, int lo, int hi) {
+            this.board = parent.board;
+            this.tiles = parent.tiles;
+            this.chunk = parent.chunk;
+            this.words = parent.words;
+            this.ids = parent.ids;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new TileRanges(this, lo, mid), new TileRanges(this, mid, hi));
+                return;
+            }
+            BoggleSearch search = search();
+            words[lo] = search.search(board, lo * chunk, Math.min(tiles, (lo + 1) * chunk));
+            ids[lo] = search.ids();
+        }
+    }
+
+    /**
+     * Returns the set of all valid words in the given board, solved window by
+     * window on the common fork/join pool. See
+     * {@link #solveTiled(BoggleBoard, int, ForkJoinPool)}.
+     *
+     * @param board a Boggle board
+     * @return an Iterable including all valid words
+     */
+    public Iterable<String> solveTiled(BoggleBoard board) {
+        return solveTiled(board, TILED_CORE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns the set of all valid words in the given board, solved window by
+     * window in parallel on the given pool, for boards too large to search as
+     * a whole. The board is cut into squares of starting tiles of the given
+     * side. A path never leaves the square around its first tile whose
+     * radius is one tile less than the longest word, so each square is
+     * searched on a window of the board that adds that margin on every side.
+     * Memory per search is then bounded by the size of a window, not of the
+     * board. Every word is claimed in a shared bitset of word ids by the
+     * first window that finds it, so only that window builds its String.
+     *
+     * @param board a Boggle board
+     * @param core  the side of the squares of starting tiles
+     * @param pool  the pool to run the windows on
+     * @return an Iterable including all valid words
+     */
+    public Iterable<String> solveTiled(BoggleBoard board, int core, ForkJoinPool pool) {
+        if (board == null) throw new IllegalArgumentException("board is null");
+        if (core <= 0) throw new IllegalArgumentException("core side must be a positive integer");
+        if (pool == null) throw new IllegalArgumentException("pool is null");
+        Windows windows = new Windows(board, core, Math.max(0, longest() - 1),
+                                      new AtomicLongArray((dictionary.size() + 63) >>> 6));
+        pool.invoke(windows);
+        List<String> words = new ArrayList<>();
+        for (List<String> found : windows.words) {
+            words.addAll(found);
+        }
+        return words;
+    }
+
+    /**
+     * Searches a range of the windows of a tiled solve, splitting it in half
+     * until there is one window per task.
+     */
+    private final class Windows extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final BoggleBoard board;
+        private final int core;
+        private final int margin;
+        private final int coreCols;     // the number of squares across the board
+        private final AtomicLongArray claimed;
+        private final List<String>[] words;
+        private final int lo, hi;       // the windows of this task
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Windows(BoggleBoard board, int core, int margin, AtomicLongArray claimed) {
+            this.board = board;
+            this.core = core;
+            this.margin = margin;
+            this.coreCols = (board.cols() + core - 1) / core;
+            this.claimed = claimed;
+            this.lo = 0;
+            this.hi = (board.rows() + core - 1) / core * coreCols;
+            this.words = new List[hi];
+        }
+
+        private Windows(Windows parent, int lo, int hi) {
+            this.board = parent.board;
+            this.core = parent.core;
+            this.margin = parent.margin;
+            this.coreCols = parent.coreCols;
+            this.claimed = parent.claimed;
+            this.words = parent.words;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Windows(this, lo, mid), new Windows(this, mid, hi));
+                return;
+            }
+            int rows = board.rows();
+            int cols = board.cols();
+            int r0 = lo / coreCols * core;
+            int c0 = lo % coreCols * core;
+            int r1 = Math.min(rows, r0 + core);
+            int c1 = Math.min(cols, c0 + core);
+            int top = Math.max(0, r0 - margin);
+            int left = Math.max(0, c0 - margin);
+            char[][] a = new char[Math.min(rows, r1 + margin) - top][Math.min(cols, c1 + margin) - left];
+            for (int i = 0; i < a.length; i++) {
+                for (int j = 0; j < a[i].length; j++) {
+                    a[i][j] = board.getLetter(top + i, left + j);
                 }
-                builder.deleteCharAt(builder.length() - 1);
             }
+            BoggleBoard window = new BoggleBoard(a);
+            ClaimSink sink = new ClaimSink(claimed);
+            BoggleSearch search = search();
+            for (int i = r0; i < r1; i++) {
+                int from = (i - top) * a[0].length + c0 - left;
+                search.search(window, from, from + c1 - c0, sink);
+            }
+            words[lo] = sink.words;
+        }
+    }
+
+    /**
+     * Keeps the words whose ids it is the first to claim in a shared bitset.
+     */
+    private static final class ClaimSink extends BoggleSearch.Sink {
+        private final AtomicLongArray claimed;
+        private final List<String> words = new ArrayList<>();
+
+        ClaimSink(AtomicLongArray claimed) {
+            this.claimed = claimed;
         }
-        // 扫描左节点和右节点
-        if (node.right != null) {
-            dfsTST(res, builder, node.right, visited, parentTileIndex);
+
+        @Override
+        boolean accept(int id, char[] path, int length) {
+            int k = id >>> 6;
+            long bit = 1L << id;
+            long old;
+            do {
+                old = claimed.get(k);
+                if ((old & bit) != 0) return true;
+            } while (!claimed.compareAndSet(k, old, old | bit));
+            words.add(new String(path, 0, length));
+            return true;
         }
-        if (node.left != null) {
-            dfsTST(res, builder, node.left, visited, parentTileIndex);
+    }
+
+    /**
+     * Returns the valid words of each of the given boards, in the same order
+     * as the boards. The boards are solved in parallel on the common
+     * fork/join pool, and each worker thread reuses its own search buffers.
+     *
+     * @param boards the Boggle boards
+     * @return the valid words of each board
+     */
+    public List<Iterable<String>> solveAll(List<BoggleBoard> boards) {
+        if (boards == null) throw new IllegalArgumentException("boards is null");
+        return boards.parallelStream()
+                     .map(this::getAllValidWords)
+                     .collect(Collectors.toList());
+    }
+
+    /**
+     * Solves the given boards in parallel on the common fork/join pool and
+     * passes each board with its valid words to the callback as soon as it
+     * is solved. The callback is called from several threads at once, in no
+     * particular order.
+     *
+     * @param boards   the Boggle boards
+     * @param callback receives each board and its valid words
+     */
+    public void solveAll(Stream<BoggleBoard> boards, BiConsumer<BoggleBoard, Iterable<String>> callback) {
+        if (boards == null) throw new IllegalArgumentException("boards is null");
+        if (callback == null) throw new IllegalArgumentException("callback is null");
+        boards.parallel().forEach(board -> callback.accept(board, getAllValidWords(board)));
+    }
+
+    /**
+     * Returns the score of the given word if it is in the directory, zero
+     * otherwise.
+     *
+     * @param word The word contains only the uppercase letters A through Z.
+     * @return The score of the given word.
+     */
+    public int scoreOf(String word) {
+        return dictionary.id(word) < 0 ? 0 : score(word.length());
+    }
+
+    /**
+     * Returns the total score of the given words, where a word that is not
+     * in the directory scores zero. A word that appears twice counts twice.
+     *
+     * @param words the words, each of uppercase letters A through Z
+     * @return the sum of the scores of the words
+     */
+    public int scoreOf(String[] words) {
+        if (words == null) throw new IllegalArgumentException("words is null");
+        int total = 0;
+        for (String word : words) {
+            if (dictionary.id(word) >= 0) total += score(word.length());
         }
+        return total;
+    }
 
+    /**
+     * Returns the total score of the given words, where a word that is not
+     * in the directory scores zero. A word that appears twice counts twice.
+     *
+     * @param words the words, each of uppercase letters A through Z
+     * @return the sum of the scores of the words
+     */
+    public int scoreOf(Iterable<String> words) {
+        if (words == null) throw new IllegalArgumentException("words is null");
+        int total = 0;
+        for (String word : words) {
+            if (dictionary.id(word) >= 0) total += score(word.length());
+        }
+        return total;
+    }
 
+    /**
+     * Returns the number of letters of the word with the given id, capped at
+     * 127. The first call walks the whole dictionary to build the table.
+     *
+     * @param id a word id
+     * @return the length of the word
+     */
+    public int lengthOf(int id) {
+        byte[] lengths = table().lengths;
+        if (id < 0 || id >= lengths.length) throw new IllegalArgumentException("word id " + id + " is out of range");
+        return lengths[id];
     }
 
-    private Map<Character, List<Integer>> getNeighbors(int row, int col, BoggleBoard board) {
-        Map<Character, List<Integer>> neighbors = new HashMap<>();
-        int brow = board.rows();
-        int bcol = board.cols();
-        for (int i = -1; i <= 1; i++) {
-            for (int j = -1; j <= 1; j++) {
-                if (i == 0 && j == 0) continue;
-                int tempRow = row + i;
-                int tempCol = col + j;
-                if (tempRow < 0 || tempRow >= brow || tempCol < 0 || tempCol >= bcol) continue;
-                char c = board.getLetter(tempRow, tempCol);
-                if (c == 'Q') c = ESCAPE_QU_CHAR;
-                if (!neighbors.containsKey(c)) {
-                    neighbors.put(c, new ArrayList<>());
-                }
-                neighbors.get(c).add(tempRow * bcol + tempCol);
+    /**
+     * Returns the score of the word with the given id. The first call walks
+     * the whole dictionary to build the table.
+     *
+     * @param id a word id
+     * @return the score of the word
+     */
+    public int scoreOf(int id) {
+        byte[] scores = table().scores;
+        if (id < 0 || id >= scores.length) throw new IllegalArgumentException("word id " + id + " is out of range");
+        return scores[id];
+    }
+
+    /**
+     * The length and score of every word, by id, and the length of the
+     * longest word. Building it walks every path of the dictionary, which a
+     * solver over a mapped snapshot would otherwise never do, so it is left
+     * until something asks by id.
+     */
+    private static final class WordTable {
+        final byte[] lengths;
+        final byte[] scores;
+        final int longest;
+
+        WordTable(BoggleDictionary dictionary) {
+            lengths = dictionary.lengths();
+            scores = new byte[lengths.length];
+            int longest = 0;
+            for (int id = 0; id < scores.length; id++) {
+                scores[id] = (byte) score(lengths[id]);
+                longest = Math.max(longest, lengths[id]);
             }
+            this.longest = longest;
         }
-        return neighbors;
     }
 
+    private WordTable table() {
+        WordTable table = this.table;
+        if (table == null) {
+            // two threads may both build it, and either table will do
+            table = new WordTable(dictionary);
+            this.table = table;
+        }
+        return table;
+    }
+
+    /**
+     * Returns the number of letters of the longest word, from the record
+     * trie unless that caps it.
+     */
+    private int longest() {
+        int longest = dictionary.longest(BoggleDictionary.ROOT);
+        return longest < BoggleDictionary.MAX_LONGEST ? longest : table().longest;
+    }
+
+    /**
+     * Returns the id of the given word.
+     *
+     * @param word the word
+     * @return the id of the word, or -1 if it is not in the directory
+     */
+    public int idOf(String word) {
+        return dictionary.id(word);
+    }
+
+    /**
+     * Returns the word with the given id.
+     *
+     * @param id a word id
+     * @return the word
+     */
+    public String wordOf(int id) {
+        return dictionary.word(id);
+    }
+
+    /**
+     * Returns the sources that contain the word with the given id, if the
+     * directory was tagged with {@link BoggleDictionary#withSources}.
+     *
+     * @param id a word id
+     * @return the bits of the sources that contain the word
+     */
+    public int sourcesOf(int id) {
+        return dictionary.sourcesOf(id);
+    }
+
+    /**
+     * Returns the total score of all valid words in the given board, without
+     * building the words themselves.
+     *
+     * @param board a Boggle board
+     * @return the sum of the scores of the valid words
+     */
+    public int totalScore(BoggleBoard board) {
+        if (board == null) throw new IllegalArgumentException("board is null");
+        BoggleCache.Entry cached = cached(board);
+        if (cached != null) return cached.score;
+        ScoreSink total = new ScoreSink();
+        search().search(board, 0, board.rows() * board.cols(), total);
+        return total.points;
+    }
+
+    /**
+     * Returns the total score of all valid words in the given packed m-by-n
+     * board, as rolled by {@link BoggleGenerator}, without building the board
+     * or the words.
+     *
+     * @param rows   the number of rows
+     * @param cols   the number of columns
+     * @param packed the packed board
+     * @return the sum of the scores of the valid words
+     */
+    public int totalScore(int rows, int cols, long[] packed) {
+        checkPacked(rows, cols, packed);
+        ScoreSink total = new ScoreSink();
+        search().search(rows, cols, packed, total);
+        return total.points;
+    }
+
+    /**
+     * Passes the id of every valid word in the given packed m-by-n board, as
+     * rolled by {@link BoggleGenerator}, to the action, without building the
+     * board or the words.
+     *
+     * @param rows   the number of rows
+     * @param cols   the number of columns
+     * @param packed the packed board
+     * @param action receives the word ids
+     */
+    public void forEachValidWordId(int rows, int cols, long[] packed, IntConsumer action) {
+        checkPacked(rows, cols, packed);
+        if (action == null) throw new IllegalArgumentException("action is null");
+        search().search(rows, cols, packed, new BoggleSearch.Sink() {
+            @Override
+            boolean accept(int id, char[] path, int length) {
+                action.accept(id);
+                return true;
+            }
+        });
+    }
+
+    private static final class ScoreSink extends BoggleSearch.Sink {
+        private int points;
+
+        @Override
+        boolean accept(int id, char[] path, int length) {
+            points += score(length);
+            return true;
+        }
+    }
+
+    /**
+     * Returns the fewest letters a word needs to score at least the given
+     * score, or Integer.MAX_VALUE if no word does.
+     */
+    private static int minLength(int score) {
+        if (score <= 1) return 3;
+        if (score == 2) return 5;
+        if (score == 3) return 6;
+        if (score <= 5) return 7;
+        if (score <= 11) return 8;
+        return Integer.MAX_VALUE;
+    }
+
+    private static int score(int length) {
+        if (length < 3) return 0;
+        if (length <= 4) return 1;
+        if (length == 5) return 2;
+        if (length == 6) return 3;
+        if (length == 7) return 5;
+        else return 11;
+    }
+
+    /**
+     * Prints the score of "BEAR" with the given dictionary. With a board count
+     * as the second argument, also solves that many random 4-by-4 boards in
+     * parallel and reports the throughput. With -speedup instead, reports the
+     * speedup of solveParallel by board size and number of threads. With
+     * -stats and board files, prints the instrumentation of each board.
+     */
     public static void main(String[] argv) {
-        In in = new In(argv[0]);
-        BoggleSolver solver = new BoggleSolver(in.readAllStrings());
+        BoggleSolver solver = new BoggleSolver(BoggleDictionary.read(argv[0]));
         StdOut.println(solver.scoreOf("BEAR"));
+        if (argv.length < 2) return;
+        if (argv[1].equals("-speedup")) {
+            reportSpeedup(solver);
+            return;
+        }
+        if (argv[1].equals("-stats")) {
+            solver.setInstrumented(true);
+            for (int i = 2; i < argv.length; i++) {
+                int points = solver.totalScore(new BoggleBoard(argv[i]));
+                StdOut.println(argv[i] + ": " + points + " points, " + solver.lastStats());
+            }
+            return;
+        }
+
+        // BoggleBoard() shuffles shared dice, so the boards are rolled up front
+        int count = Integer.parseInt(argv[1]);
+        List<BoggleBoard> boards = Stream.generate(BoggleBoard::new)
+                                         .limit(count)
+                                         .collect(Collectors.toList());
+        long start = System.nanoTime();
+        int points = 0;
+        for (Iterable<String> words : solver.solveAll(boards)) {
+            for (String word : words) {
+                points += solver.scoreOf(word);
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        StdOut.printf("%d boards, %d points, %.0f boards/second on %d threads%n", count, points,
+                      count / seconds, Runtime.getRuntime().availableProcessors());
+    }
+
+    private static void reportSpeedup(BoggleSolver solver) {
+        // the powers of two below the number of cores, then all of them
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> counts = new ArrayList<>();
+        for (int threads = 1; threads < cores; threads *= 2) {
+            counts.add(threads);
+        }
+        counts.add(cores);
+        StdOut.printf("%6s %8s %12s %8s%n", "size", "threads", "ms/board", "speedup");
+        for (int size : new int[] { 10, 25, 50, 100 }) {
+            BoggleBoard board = new BoggleBoard(size, size);
+            double serial = 0;
+            for (int threads : counts) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                solver.solveParallel(board, pool);      // warm up
+                int runs = 0;
+                long start = System.nanoTime();
+                do {
+                    solver.solveParallel(board, pool);
+                    runs++;
+                } while (System.nanoTime() - start < 1e9);
+                pool.shutdown();
+                double ms = (System.nanoTime() - start) / 1e6 / runs;
+                if (threads == 1) serial = ms;
+                StdOut.printf("%6s %8d %12.2f %8.2f%n", size + "x" + size, threads, ms, serial / ms);
+            }
+        }
     }
 }
@@ -0,0 +1,115 @@
+/* *****************************************************************************
+ *  Name: BoggleStats.java
+ *  Date: 10/18/2026
+ *  Description: What the solver did while searching: the trie records it
+ *               visited, the neighbor tiles it rejected, the words it found
+ *               again on another path, the longest path, the words it
+ *               reported, and the time split between scanning the board and
+ *               searching it. A BoggleStats covers either one search or all
+ *               searches of a solver since instrumentation was turned on.
+ *****************************************************************************/
+
+public class BoggleStats {
+
+    private final long searches;
+    private final long nodes;
+    private final long neighborMisses;
+    private final long duplicates;
+    private final int maxDepth;
+    private final long words;
+    private final long scanNanos;
+    private final long searchNanos;
+
+    BoggleStats(long searches, long nodes, long neighborMisses, long duplicates, int maxDepth, long words,
+                long scanNanos, long searchNanos) {
+        this.searches = searches;
+        this.nodes = nodes;
+        this.neighborMisses = neighborMisses;
+        this.duplicates = duplicates;
+        this.maxDepth = maxDepth;
+        this.words = words;
+        this.scanNanos = scanNanos;
+        this.searchNanos = searchNanos;
+    }
+
+    /**
+     * Returns the number of searches covered. A parallel solve counts one
+     * search per range of starting tiles.
+     *
+     * @return the number of searches
+     */
+    public long searches() {
+        return searches;
+    }
+
+    /**
+     * Returns the number of trie records visited.
+     *
+     * @return the number of records visited
+     */
+    public long nodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of neighbor tiles that were tried and rejected
+     * because they had the wrong letter or were already on the path.
+     *
+     * @return the number of rejected neighbor tiles
+     */
+    public long neighborMisses() {
+        return neighborMisses;
+    }
+
+    /**
+     * Returns the number of times a word was found again on another path.
+     *
+     * @return the number of duplicate hits
+     */
+    public long duplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Returns the most letters on any path that was searched.
+     *
+     * @return the maximum depth, in letters
+     */
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns the number of words reported.
+     *
+     * @return the number of words found
+     */
+    public long words() {
+        return words;
+    }
+
+    /**
+     * Returns the time spent reading the letters of the boards.
+     *
+     * @return the board scan time in nanoseconds
+     */
+    public long scanNanos() {
+        return scanNanos;
+    }
+
+    /**
+     * Returns the time spent searching the boards.
+     *
+     * @return the search time in nanoseconds
+     */
+    public long searchNanos() {
+        return searchNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d searches, %d nodes, %d neighbor misses, %d duplicates, max depth %d, "
+                             + "%d words, scan %.3f ms, search %.3f ms", searches, nodes, neighborMisses,
+                             duplicates, maxDepth, words, scanNanos / 1e6, searchNanos / 1e6);
+    }
+}